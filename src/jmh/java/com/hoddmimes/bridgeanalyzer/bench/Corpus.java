@@ -0,0 +1,40 @@
+package com.hoddmimes.bridgeanalyzer.bench;
+
+import com.hoddmimes.bridgeanalyzer.cli.DealGenerator;
+import com.hoddmimes.bridgeanalyzer.cli.LinParser;
+import com.hoddmimes.bridgeanalyzer.game.Deal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deals the benchmarks run over: the first boards of a LIN file, or seeded
+ * random deals, so that every run of a benchmark sees the same deals.
+ */
+final class Corpus {
+    static final String LIN = "lin";
+    static final String RANDOM = "random";
+
+    private Corpus() {}
+
+    static List<Deal> load(String corpus, String linFile, int count, long seed) throws IOException {
+        if (LIN.equals(corpus)) {
+            List<Deal> deals = LinParser.parseFile(linFile);
+            if (deals.isEmpty()) {
+                throw new IOException("No deals in " + linFile);
+            }
+            return deals.subList(0, Math.min(count, deals.size()));
+        }
+        if (RANDOM.equals(corpus)) {
+            Random random = new Random(seed);
+            List<Deal> deals = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                deals.add(DealGenerator.generate(random));
+            }
+            return deals;
+        }
+        throw new IllegalArgumentException("Unknown corpus: " + corpus);
+    }
+}
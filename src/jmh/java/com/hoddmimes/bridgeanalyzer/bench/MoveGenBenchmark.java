@@ -0,0 +1,101 @@
+package com.hoddmimes.bridgeanalyzer.bench;
+
+import com.hoddmimes.bridgeanalyzer.game.Deal;
+import com.hoddmimes.bridgeanalyzer.game.GameState;
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+import com.hoddmimes.bridgeanalyzer.model.Trump;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GameState move generation: one operation plays a whole deal out and back,
+ * generating the legal and reduced moves at every card. The cards played
+ * are drawn once per trial, so every operation does the same work.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MoveGenBenchmark {
+
+    @Param({Corpus.LIN, Corpus.RANDOM})
+    public String corpus;
+
+    @Param("Opening1M.lin")
+    public String linFile;
+
+    @Param("16")
+    public int deals;
+
+    @Param("1")
+    public long seed;
+
+    private GameState[] states;
+    // Per deal, the card played at each step and its undo record
+    private int[][] plays;
+    private int[] undo;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Deal> boards = Corpus.load(corpus, linFile, deals, seed);
+        Random random = new Random(seed);
+        states = new GameState[boards.size()];
+        plays = new int[boards.size()][];
+        for (int i = 0; i < boards.size(); i++) {
+            Trump trump = Trump.values()[i % Trump.values().length];
+            states[i] = new GameState(boards.get(i), trump, Direction.fromIndex(i % 4));
+            plays[i] = randomPlay(states[i], random);
+        }
+        undo = new int[52];
+    }
+
+    @Benchmark
+    public void playOut(Blackhole bh) {
+        for (int i = 0; i < states.length; i++) {
+            GameState state = states[i];
+            int[] cards = plays[i];
+            for (int step = 0; step < cards.length; step++) {
+                bh.consume(state.legalMoveMask());
+                bh.consume(state.reducedMoveMask());
+                undo[step] = state.playCardFast(cards[step]);
+            }
+            for (int step = cards.length - 1; step >= 0; step--) {
+                state.undoCardFast(cards[step], undo[step]);
+            }
+        }
+    }
+
+    private static int[] randomPlay(GameState state, Random random) {
+        int[] cards = new int[state.totalTricks() * 4];
+        int[] undo = new int[cards.length];
+        for (int step = 0; step < cards.length; step++) {
+            long legal = state.legalMoveMask();
+            for (int skip = random.nextInt(Long.bitCount(legal)); skip > 0; skip--) {
+                legal &= legal - 1;
+            }
+            cards[step] = Long.numberOfTrailingZeros(legal);
+            undo[step] = state.playCardFast(cards[step]);
+        }
+        for (int step = cards.length - 1; step >= 0; step--) {
+            state.undoCardFast(cards[step], undo[step]);
+        }
+        return cards;
+    }
+}
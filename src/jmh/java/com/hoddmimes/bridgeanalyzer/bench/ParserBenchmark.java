@@ -0,0 +1,78 @@
+package com.hoddmimes.bridgeanalyzer.bench;
+
+import com.hoddmimes.bridgeanalyzer.cli.DealFile;
+import com.hoddmimes.bridgeanalyzer.cli.LinParser;
+import com.hoddmimes.bridgeanalyzer.game.Deal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/** Reading a LIN file, or the same deals in a binary deal file, file system included. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param("Opening1M.lin")
+    public String linFile;
+
+    // The LIN file converted to a binary deal file
+    private Path binFile;
+
+    @Setup
+    public void setup() throws IOException {
+        binFile = Files.createTempFile("bench", ".bdl");
+        DealFile.convert(Path.of(linFile), binFile);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(binFile);
+    }
+
+    @Benchmark
+    public List<Deal> parseFile() throws IOException {
+        return LinParser.parseFile(linFile);
+    }
+
+    @Benchmark
+    public List<Deal> readBinary() throws IOException {
+        try (Stream<Deal> deals = DealFile.stream(binFile)) {
+            return deals.collect(Collectors.toList());
+        }
+    }
+
+    /** Binary file decoded to hand masks only, without allocating per deal. */
+    @Benchmark
+    public long readBinaryHands() throws IOException {
+        long[] hands = new long[4];
+        long sum = 0;
+        try (DealFile file = DealFile.open(binFile)) {
+            for (long i = 0; i < file.size(); i++) {
+                file.hands(i, hands);
+                sum += hands[0] ^ hands[3];
+            }
+        }
+        return sum;
+    }
+}
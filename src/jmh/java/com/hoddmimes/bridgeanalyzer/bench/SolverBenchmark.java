@@ -0,0 +1,105 @@
+package com.hoddmimes.bridgeanalyzer.bench;
+
+import com.hoddmimes.bridgeanalyzer.game.Deal;
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+import com.hoddmimes.bridgeanalyzer.model.Trump;
+import com.hoddmimes.bridgeanalyzer.solver.AlphaBetaSolver;
+import com.hoddmimes.bridgeanalyzer.solver.DDTable;
+import com.hoddmimes.bridgeanalyzer.solver.SearchDriver;
+import com.hoddmimes.bridgeanalyzer.solver.TranspositionTable;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Double-dummy solving: one contract per operation ({@link #solve}, cycling
+ * through the strains and declarers of every deal) and a whole table per
+ * operation ({@link #table}).
+ *
+ * Besides the time per operation the {@code nodes} counter gives the search
+ * speed in nodes per second, so that a slowdown can be told apart from a
+ * change in the number of positions searched.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class SolverBenchmark {
+
+    @Param({Corpus.LIN, Corpus.RANDOM})
+    public String corpus;
+
+    @Param({"MTDF", "FULL_WINDOW"})
+    public SearchDriver driver;
+
+    @Param("Opening1M.lin")
+    public String linFile;
+
+    @Param("16")
+    public int deals;
+
+    @Param("1")
+    public long seed;
+
+    private List<Deal> boards;
+    private AlphaBetaSolver solver;
+    private int next;
+
+    /** Nodes searched, reported by JMH per second. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            nodes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        boards = Corpus.load(corpus, linFile, deals, seed);
+        solver = new AlphaBetaSolver(TranspositionTable.DEFAULT_SIZE_MB, false, 1, driver);
+        next = 0;
+    }
+
+    @Benchmark
+    public int solve(Nodes counter) {
+        int cell = next++ % (boards.size() * 20);
+        Deal deal = boards.get(cell / 20);
+        Trump trump = Trump.values()[cell % 20 / 4];
+        Direction declarer = Direction.fromIndex(cell % 4);
+
+        long before = solver.nodes();
+        int tricks = solver.solve(deal, trump, declarer);
+        counter.nodes += solver.nodes() - before;
+        return tricks;
+    }
+
+    @Benchmark
+    public DDTable table(Nodes counter) {
+        Deal deal = boards.get(next++ % boards.size());
+
+        long before = solver.nodes();
+        DDTable table = solver.solveTable(deal);
+        counter.nodes += solver.nodes() - before;
+        return table;
+    }
+}
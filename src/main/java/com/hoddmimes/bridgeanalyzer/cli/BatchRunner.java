@@ -0,0 +1,50 @@
+package com.hoddmimes.bridgeanalyzer.cli;
+
+import com.hoddmimes.bridgeanalyzer.game.Deal;
+import com.hoddmimes.bridgeanalyzer.solver.Solver;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Solves a sequence of deals on a work-stealing pool. Every worker thread gets
+ * its own solver (and so its own transposition table); results are printed
+ * in the order of the deals. At most a few tasks per thread are in flight, so
+ * memory stays bounded however many deals there are.
+ */
+public class BatchRunner {
+    private static final int TASKS_PER_THREAD = 4;
+
+    public static void run(Iterable<Deal> deals, int threads, Supplier<Solver> solvers,
+                           BiFunction<Deal, Solver, String> format, PrintStream out) throws InterruptedException {
+        ThreadLocal<Solver> solver = ThreadLocal.withInitial(solvers);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            ArrayDeque<ForkJoinTask<String>> pending = new ArrayDeque<>();
+            for (Deal deal : deals) {
+                if (pending.size() >= threads * TASKS_PER_THREAD) {
+                    out.print(result(pending.poll()));
+                }
+                pending.add(pool.submit(() -> format.apply(deal, solver.get())));
+            }
+            while (!pending.isEmpty()) {
+                out.print(result(pending.poll()));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static String result(ForkJoinTask<String> task) throws InterruptedException {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Solving a deal failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.hoddmimes.bridgeanalyzer.cli;
+
+import com.hoddmimes.bridgeanalyzer.game.Deal;
+import com.hoddmimes.bridgeanalyzer.game.Hand;
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Binary deal file: a fixed header followed by fixed-width records, so
+ * deal i is at byte {@code offset(i)} and a file splits into shards at any
+ * record boundary.
+ *
+ * Header ({@value #HEADER_SIZE} bytes, little-endian): magic "BDL2", record
+ * size, number of deals, padding. Record ({@value #RECORD_SIZE} bytes):
+ * <ul>
+ * <li>bytes 0-12: the owner (direction index) of every card, 2 bits per
+ *     card in bit index order;</li>
+ * <li>bytes 13-16: board number;</li>
+ * <li>byte 17: dealer in bits 0-1, vulnerability in bits 2-4 (0 none
+ *     given, then 0, N, E, B);</li>
+ * <li>bytes 18-19: padding.</li>
+ * </ul>
+ * Board names are not stored. The file is memory-mapped; {@link #hands}
+ * decodes a deal without allocating.
+ */
+public final class DealFile implements Closeable {
+    public static final int HEADER_SIZE = 32;
+    public static final int RECORD_SIZE = 20;
+
+    private static final int MAGIC = 'B' | 'D' << 8 | 'L' << 16 | '2' << 24;
+    private static final int CARD_BYTES = 13;
+    // Records per mapped window; windows start at a record boundary
+    private static final long WINDOW_RECORDS = 1L << 26;
+    private static final String[] VULNERABILITY = {null, "0", "N", "E", "B"};
+
+    /** Per byte value and owner, the 4-bit mask of the byte's cards the owner holds. */
+    private static final byte[] OWNED = new byte[256 * 4];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            for (int card = 0; card < 4; card++) {
+                int owner = (b >>> (card * 2)) & 3;
+                OWNED[b * 4 + owner] |= (byte) (1 << card);
+            }
+        }
+    }
+
+    private final FileChannel channel;
+    private final long count;
+    private final ByteBuffer[] windows;
+
+    private DealFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) { }
+        if (header.position() < HEADER_SIZE || header.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary deal file");
+        }
+        if (header.getInt(4) != RECORD_SIZE) {
+            throw new IOException("Unsupported record size " + header.getInt(4));
+        }
+        count = header.getLong(8);
+        if (channel.size() < offset(count)) {
+            throw new IOException("Binary deal file truncated: " + count + " deals expected");
+        }
+
+        windows = new ByteBuffer[(int) ((count + WINDOW_RECORDS - 1) / WINDOW_RECORDS)];
+        for (int w = 0; w < windows.length; w++) {
+            long first = w * WINDOW_RECORDS;
+            long records = Math.min(WINDOW_RECORDS, count - first);
+            windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, offset(first), records * RECORD_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /** Open a binary deal file for reading. */
+    public static DealFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new DealFile(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** True if the file starts with the binary deal file magic. */
+    public static boolean isDealFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && channel.read(magic, magic.position()) > 0) { }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /** The deals of a binary deal file; the stream holds the file open until it is closed. */
+    public static Stream<Deal> stream(Path path) throws IOException {
+        DealFile file = open(path);
+        return file.stream(0, file.size()).onClose(file::closeUnchecked);
+    }
+
+    /** Write the deals of a LIN file (plain or gzip) to a binary deal file; returns the number of deals. */
+    public static long convert(Path lin, Path out) throws IOException {
+        try (Stream<Deal> deals = LinReader.stream(lin)) {
+            return write(deals::iterator, out);
+        }
+    }
+
+    /**
+     * Write the deals to a binary deal file; returns their number. The file
+     * is written under a temporary name and only replaces {@code out} once
+     * complete.
+     */
+    public static long write(Iterable<Deal> deals, Path out) throws IOException {
+        Path tmp = out.resolveSibling(out.getFileName() + ".tmp");
+        try {
+            long count = writeRecords(deals, tmp);
+            try {
+                Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return count;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static long writeRecords(Iterable<Deal> deals, Path out) throws IOException {
+        try (FileChannel channel = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocate(RECORD_SIZE * 4096).order(ByteOrder.LITTLE_ENDIAN);
+            channel.position(HEADER_SIZE);
+            long count = 0;
+            for (Deal deal : deals) {
+                encode(deal, buf);
+                count++;
+                if (!buf.hasRemaining()) {
+                    drain(channel, buf);
+                }
+            }
+            drain(channel, buf);
+
+            buf.putInt(MAGIC).putInt(RECORD_SIZE).putLong(count);
+            while (buf.position() < HEADER_SIZE) buf.put((byte) 0);
+            buf.flip();
+            for (long at = 0; buf.hasRemaining(); ) {
+                at += channel.write(buf, at);
+            }
+            return count;
+        }
+    }
+
+    /** Number of deals in the file. */
+    public long size() { return count; }
+
+    /** Byte offset of deal i in a binary deal file. */
+    public static long offset(long index) { return HEADER_SIZE + index * RECORD_SIZE; }
+
+    /** Write the card masks of deal i's hands, by direction index, to {@code hands[0..3]}. */
+    public void hands(long index, long[] hands) {
+        ByteBuffer w = window(index);
+        int at = position(index);
+        hands[0] = hands[1] = hands[2] = hands[3] = 0;
+        for (int i = 0; i < CARD_BYTES; i++) {
+            int row = (w.get(at + i) & 0xFF) * 4;
+            int shift = i * 4;
+            hands[0] |= (long) OWNED[row] << shift;
+            hands[1] |= (long) OWNED[row + 1] << shift;
+            hands[2] |= (long) OWNED[row + 2] << shift;
+            hands[3] |= (long) OWNED[row + 3] << shift;
+        }
+    }
+
+    /** Board number of deal i. */
+    public int boardNumber(long index) {
+        return window(index).getInt(position(index) + CARD_BYTES);
+    }
+
+    /** Deal i as a Deal. */
+    public Deal deal(long index) {
+        long[] hands = new long[4];
+        hands(index, hands);
+        Deal deal = new Deal();
+        for (Direction dir : Direction.values()) {
+            deal.setHand(dir, new Hand(hands[dir.index()]));
+        }
+        int flags = window(index).get(position(index) + CARD_BYTES + 4);
+        deal.setBoardNumber(boardNumber(index));
+        deal.setDealer(Direction.fromIndex(flags & 3));
+        deal.setVulnerability(VULNERABILITY[(flags >>> 2) & 7]);
+        return deal;
+    }
+
+    /** Deals {@code from} (inclusive) to {@code to} (exclusive), splittable for parallel streams. */
+    public Stream<Deal> stream(long from, long to) {
+        if (from < 0 || to > count || from > to) {
+            throw new IndexOutOfBoundsException("Deals " + from + "-" + to + " of " + count);
+        }
+        return StreamSupport.stream(new RecordSpliterator(from, to), false);
+    }
+
+    /** All deals, in order. */
+    public Iterator<Deal> iterator() {
+        return stream(0, count).iterator();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void closeUnchecked() {
+        try {
+            close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ByteBuffer window(long index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Deal " + index + " of " + count);
+        }
+        return windows[(int) (index / WINDOW_RECORDS)];
+    }
+
+    private static int position(long index) {
+        return (int) (index % WINDOW_RECORDS) * RECORD_SIZE;
+    }
+
+    private static void encode(Deal deal, ByteBuffer buf) {
+        long[] owners = new long[2];
+        long seen = 0;
+        for (Direction dir : Direction.values()) {
+            long bits = deal.hand(dir).bits();
+            if ((bits & seen) != 0) throw new IllegalArgumentException("Card in two hands");
+            seen |= bits;
+            for (long b = bits; b != 0; b &= b - 1) {
+                int card = Long.numberOfTrailingZeros(b);
+                owners[card >>> 5] |= (long) dir.index() << ((card & 31) * 2);
+            }
+        }
+        if (seen != (1L << 52) - 1) throw new IllegalArgumentException("Deal does not hold all 52 cards");
+        for (int i = 0; i < CARD_BYTES; i++) {
+            buf.put((byte) (owners[i >>> 3] >>> ((i & 7) * 8)));
+        }
+
+        int board = deal.boardNumber();
+        if (board < 0) throw new IllegalArgumentException("Board number out of range: " + board);
+        buf.putInt(board);
+        Direction dealer = deal.dealer() != null ? deal.dealer() : Direction.NORTH;
+        buf.put((byte) (dealer.index() | vulnerabilityCode(deal.vulnerability()) << 2));
+        buf.putShort((short) 0);
+    }
+
+    /** LIN sv value to its code; values the format does not know are stored as none given. */
+    private static int vulnerabilityCode(String sv) {
+        if (sv == null) return 0;
+        return switch (sv.trim().toUpperCase()) {
+            case "0", "O", "-" -> 1;
+            case "N" -> 2;
+            case "E" -> 3;
+            case "B" -> 4;
+            default -> 0;
+        };
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) channel.write(buf);
+        buf.clear();
+    }
+
+    /** Deals of a record range; splits in the middle, sizes are exact. */
+    private final class RecordSpliterator implements Spliterator<Deal> {
+        private long next;
+        private final long end;
+
+        RecordSpliterator(long from, long to) {
+            this.next = from;
+            this.end = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Deal> action) {
+            if (next >= end) return false;
+            action.accept(deal(next++));
+            return true;
+        }
+
+        @Override
+        public Spliterator<Deal> trySplit() {
+            long mid = next + (end - next) / 2;
+            if (mid - next < 64) return null;
+            RecordSpliterator prefix = new RecordSpliterator(next, mid);
+            next = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() { return end - next; }
+
+        @Override
+        public int characteristics() { return ORDERED | NONNULL | IMMUTABLE | SIZED | SUBSIZED; }
+    }
+}
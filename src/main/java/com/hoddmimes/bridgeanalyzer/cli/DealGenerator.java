@@ -2,29 +2,197 @@ package com.hoddmimes.bridgeanalyzer.cli;
 
 import com.hoddmimes.bridgeanalyzer.game.Deal;
 import com.hoddmimes.bridgeanalyzer.game.Hand;
-import com.hoddmimes.bridgeanalyzer.model.Card;
 import com.hoddmimes.bridgeanalyzer.model.Direction;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.ArrayList;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
+/**
+ * Random deals, dealt straight into hand card masks.
+ *
+ * A generator draws from a {@link SplittableRandom} seeded with its seed,
+ * so a seed always gives the same deals. Hands may be constrained (see
+ * {@link HandConstraint}): the cards a hand must hold are given to it
+ * first, then the constrained hands are dealt one at a time and each is
+ * checked as soon as it is dealt, so a rejected deal costs little. The
+ * accepted deals are uniform among those meeting the constraints.
+ *
+ * A generator is not thread-safe; {@link #forStream} gives independent,
+ * reproducible generators for other threads, and {@link #stream} uses them
+ * to produce a parallel stream whose deals do not depend on the threads.
+ */
 public class DealGenerator {
+    // Deals per independent block of stream()
+    private static final int BLOCK = 4096;
+    private static final long MAX_ATTEMPTS = 100_000_000L;
+
+    private final long seed;
+    private final SplittableRandom random;
+    private final HandConstraint[] constraints = new HandConstraint[4];
+    // Cards each hand is given before dealing
+    private final long[] given = new long[4];
+    // Hands in dealing order, constrained first; the last gets the rest of the deck
+    private final int[] order = {0, 1, 2, 3};
+    // The cards not given, in a scratch order
+    private final int[] deck = new int[52];
+    private int free;
+    private long attempts;
+
+    public DealGenerator(long seed) {
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+        prepare();
+    }
 
     public static Deal generate() {
-        Card[] allCards = Card.allCards();
-        List<Card> deck = new ArrayList<>(List.of(allCards));
-        Collections.shuffle(deck);
+        return generate(new Random());
+    }
+
+    /** A random deal drawn from the given generator, so that a seed gives the same deals. */
+    public static Deal generate(Random random) {
+        int[] deck = new int[52];
+        for (int i = 0; i < 52; i++) {
+            deck[i] = i;
+        }
+        // Same draws as Collections.shuffle
+        for (int i = 52; i > 1; i--) {
+            int j = random.nextInt(i);
+            int card = deck[i - 1];
+            deck[i - 1] = deck[j];
+            deck[j] = card;
+        }
+        long[] hands = new long[4];
+        for (int i = 0; i < 52; i++) {
+            hands[i / 13] |= 1L << deck[i];
+        }
+        return toDeal(hands, 1);
+    }
+
+    /**
+     * Constrain the hand of the given direction, or lift its constraint
+     * with null; returns this generator.
+     */
+    public DealGenerator constrain(Direction dir, HandConstraint constraint) {
+        HandConstraint previous = constraints[dir.index()];
+        constraints[dir.index()] = constraint;
+        try {
+            prepare();
+        } catch (IllegalArgumentException e) {
+            constraints[dir.index()] = previous;
+            prepare();
+            throw e;
+        }
+        return this;
+    }
 
+    /**
+     * An independent generator with the same constraints for stream
+     * {@code index} of this generator's seed.
+     */
+    public DealGenerator forStream(long index) {
+        DealGenerator other = new DealGenerator(new SplittableRandom(seed + index * 0x9E3779B97F4A7C15L).nextLong());
+        for (Direction dir : Direction.values()) {
+            if (constraints[dir.index()] != null) other.constrain(dir, constraints[dir.index()]);
+        }
+        return other;
+    }
+
+    /**
+     * Deal the next accepted deal into {@code hands}, card masks by
+     * direction index. Does not allocate.
+     *
+     * @throws IllegalStateException if the constraints reject a very long run of deals
+     */
+    public void next(long[] hands) {
+        for (long tries = 0; !deal(hands); tries++) {
+            if (tries == MAX_ATTEMPTS) {
+                throw new IllegalStateException("Hand constraints rejected " + MAX_ATTEMPTS + " deals in a row");
+            }
+        }
+    }
+
+    /** The next accepted deal, with the given board number. */
+    public Deal next(int boardNumber) {
+        long[] hands = new long[4];
+        next(hands);
+        return toDeal(hands, boardNumber);
+    }
+
+    /** Deals dealt so far, rejected ones included. */
+    public long attempts() { return attempts; }
+
+    /**
+     * {@code count} deals numbered from 1. Blocks of deals come from
+     * {@link #forStream} generators, so the deals are the same whether the
+     * stream runs in parallel or not.
+     */
+    public Stream<Deal> stream(long count) {
+        long blocks = (count + BLOCK - 1) / BLOCK;
+        return LongStream.range(0, blocks).boxed().flatMap(block -> {
+            DealGenerator generator = forStream(block);
+            long first = block * BLOCK;
+            return LongStream.range(first, Math.min(first + BLOCK, count))
+                    .mapToObj(i -> generator.next((int) (i + 1)));
+        });
+    }
+
+    /** One try: deal the hands in order, stopping at the first that fails its constraint. */
+    private boolean deal(long[] hands) {
+        attempts++;
+        int at = 0;
+        for (int k = 0; k < 4; k++) {
+            int dir = order[k];
+            long bits = given[dir];
+            if (k == 3) {
+                for (int i = at; i < free; i++) {
+                    bits |= 1L << deck[i];
+                }
+            } else {
+                // Partial Fisher-Yates shuffle: draw the hand's cards to the front
+                for (int n = 13 - Long.bitCount(bits); n > 0; n--, at++) {
+                    int j = at + random.nextInt(free - at);
+                    int card = deck[j];
+                    deck[j] = deck[at];
+                    deck[at] = card;
+                    bits |= 1L << card;
+                }
+            }
+            hands[dir] = bits;
+            HandConstraint constraint = constraints[dir];
+            if (constraint != null && !constraint.accepts(bits)) return false;
+        }
+        return true;
+    }
+
+    /** Recompute the given cards, the dealing order and the free deck from the constraints. */
+    private void prepare() {
+        long all = 0;
+        int n = 0;
+        for (int dir = 0; dir < 4; dir++) {
+            given[dir] = constraints[dir] != null ? constraints[dir].cards() : 0;
+            if ((given[dir] & all) != 0) throw new IllegalArgumentException("A card is given to two hands");
+            if (Long.bitCount(given[dir]) > 13) throw new IllegalArgumentException("More than 13 cards given to a hand");
+            all |= given[dir];
+            if (constraints[dir] != null) order[n++] = dir;
+        }
+        for (int dir = 0; dir < 4; dir++) {
+            if (constraints[dir] == null) order[n++] = dir;
+        }
+        free = 0;
+        for (int card = 0; card < 52; card++) {
+            if ((all & 1L << card) == 0) deck[free++] = card;
+        }
+    }
+
+    private static Deal toDeal(long[] hands, int boardNumber) {
         Deal deal = new Deal();
         deal.setBoardName("Random");
-        deal.setBoardNumber(1);
+        deal.setBoardNumber(boardNumber);
         deal.setDealer(Direction.NORTH);
-
-        Direction[] dirs = Direction.values();
-        for (int i = 0; i < 52; i++) {
-            Hand hand = deal.hand(dirs[i / 13]);
-            hand.add(deck.get(i));
+        for (Direction dir : Direction.values()) {
+            deal.setHand(dir, new Hand(hands[dir.index()]));
         }
         return deal;
     }
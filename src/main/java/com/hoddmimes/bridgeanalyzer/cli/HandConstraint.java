@@ -0,0 +1,129 @@
+package com.hoddmimes.bridgeanalyzer.cli;
+
+import com.hoddmimes.bridgeanalyzer.model.Card;
+import com.hoddmimes.bridgeanalyzer.model.Rank;
+import com.hoddmimes.bridgeanalyzer.model.Suit;
+
+/**
+ * Constraint on one hand of a generated deal: a high-card point range,
+ * suit length ranges and cards the hand must hold. Ranges are inclusive.
+ * The setters return the constraint, e.g.
+ * {@code new HandConstraint().hcp(15, 17).length(Suit.SPADES, 5, 13)}.
+ */
+public class HandConstraint {
+    private static final long SUIT_MASK = 0x1FFFL;
+    // High-card points of every 13-bit suit holding (A=4, K=3, Q=2, J=1)
+    private static final byte[] HCP = new byte[1 << 13];
+
+    static {
+        for (int suit = 0; suit < HCP.length; suit++) {
+            HCP[suit] = (byte) (4 * (suit >>> 12 & 1) + 3 * (suit >>> 11 & 1) + 2 * (suit >>> 10 & 1)
+                    + (suit >>> 9 & 1));
+        }
+    }
+
+    private int minHcp = 0, maxHcp = 37;
+    private final int[] minLength = new int[4];
+    private final int[] maxLength = {13, 13, 13, 13};
+    private long cards;
+
+    public HandConstraint hcp(int min, int max) {
+        this.minHcp = min;
+        this.maxHcp = max;
+        return this;
+    }
+
+    public HandConstraint length(Suit suit, int min, int max) {
+        minLength[suit.index()] = min;
+        maxLength[suit.index()] = max;
+        return this;
+    }
+
+    /** Cards the hand must hold; they are dealt to it before the rest of the deck. */
+    public HandConstraint cards(Card... held) {
+        for (Card card : held) {
+            cards |= card.bitMask();
+        }
+        return this;
+    }
+
+    /** Cards the hand must hold, given as a card mask. */
+    public HandConstraint cards(long held) {
+        cards |= held;
+        return this;
+    }
+
+    /** Cards the hand must hold, as a card mask. */
+    public long cards() { return cards; }
+
+    /** True if the hand, as a card mask, meets the constraint. */
+    public boolean accepts(long hand) {
+        if ((hand & cards) != cards) return false;
+        int hcp = 0;
+        for (int suit = 0; suit < 4; suit++) {
+            long holding = hand >>> (suit * 13) & SUIT_MASK;
+            int length = Long.bitCount(holding);
+            if (length < minLength[suit] || length > maxLength[suit]) return false;
+            hcp += HCP[(int) holding];
+        }
+        return hcp >= minHcp && hcp <= maxHcp;
+    }
+
+    /** High-card points of a hand given as a card mask. */
+    public static int points(long hand) {
+        return HCP[(int) (hand & SUIT_MASK)] + HCP[(int) (hand >>> 13 & SUIT_MASK)]
+                + HCP[(int) (hand >>> 26 & SUIT_MASK)] + HCP[(int) (hand >>> 39 & SUIT_MASK)];
+    }
+
+    /**
+     * Parse a constraint such as {@code hcp=15-17,S=5-13,H=0-2,cards=SA+HK}:
+     * comma-separated terms, a range for the points or a suit (S, H, D, C),
+     * or the cards the hand holds joined by '+'. A single number is an
+     * exact value.
+     */
+    public static HandConstraint parse(String text) {
+        HandConstraint constraint = new HandConstraint();
+        for (String term : text.split(",")) {
+            int eq = term.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Bad hand constraint: " + term);
+            String key = term.substring(0, eq).trim().toUpperCase();
+            String value = term.substring(eq + 1).trim();
+            switch (key) {
+                case "HCP" -> constraint.hcp(low(value), high(value));
+                case "S" -> constraint.length(Suit.SPADES, low(value), high(value));
+                case "H" -> constraint.length(Suit.HEARTS, low(value), high(value));
+                case "D" -> constraint.length(Suit.DIAMONDS, low(value), high(value));
+                case "C" -> constraint.length(Suit.CLUBS, low(value), high(value));
+                case "CARDS" -> {
+                    for (String card : value.split("\\+")) {
+                        constraint.cards(parseCard(card.trim()));
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown hand constraint: " + key);
+            }
+        }
+        return constraint;
+    }
+
+    private static int low(String range) {
+        int dash = range.indexOf('-');
+        return Integer.parseInt(dash < 0 ? range : range.substring(0, dash));
+    }
+
+    private static int high(String range) {
+        int dash = range.indexOf('-');
+        return Integer.parseInt(dash < 0 ? range : range.substring(dash + 1));
+    }
+
+    private static Card parseCard(String s) {
+        if (s.length() != 2) throw new IllegalArgumentException("Bad card: " + s);
+        Suit suit = switch (Character.toUpperCase(s.charAt(0))) {
+            case 'S' -> Suit.SPADES;
+            case 'H' -> Suit.HEARTS;
+            case 'D' -> Suit.DIAMONDS;
+            case 'C' -> Suit.CLUBS;
+            default -> throw new IllegalArgumentException("Bad card: " + s);
+        };
+        return Card.of(suit, Rank.fromChar(s.charAt(1)));
+    }
+}
@@ -0,0 +1,154 @@
+package com.hoddmimes.bridgeanalyzer.cli;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough JSON for the solver service: {@link #parse} reads objects
+ * (as maps), arrays (lists), strings, numbers (doubles), booleans and null.
+ */
+final class Json {
+    private final String text;
+    private int at;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /** @throws IllegalArgumentException if the text is not one JSON value */
+    static Object parse(String text) {
+        Json json = new Json(text);
+        Object value = json.value();
+        json.skipSpace();
+        if (json.at != text.length()) throw json.error("Trailing characters");
+        return value;
+    }
+
+    /** The string as a JSON string literal. */
+    static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < ' ') {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private Object value() {
+        skipSpace();
+        if (at == text.length()) throw error("Missing value");
+        char c = text.charAt(at);
+        switch (c) {
+            case '{' -> {
+                at++;
+                Map<String, Object> object = new LinkedHashMap<>();
+                if (consume('}')) return object;
+                do {
+                    skipSpace();
+                    if (at == text.length() || text.charAt(at) != '"') throw error("Expected a key");
+                    String key = string();
+                    if (!consume(':')) throw error("Expected ':'");
+                    object.put(key, value());
+                } while (consume(','));
+                if (!consume('}')) throw error("Expected '}'");
+                return object;
+            }
+            case '[' -> {
+                at++;
+                List<Object> array = new ArrayList<>();
+                if (consume(']')) return array;
+                do {
+                    array.add(value());
+                } while (consume(','));
+                if (!consume(']')) throw error("Expected ']'");
+                return array;
+            }
+            case '"' -> {
+                return string();
+            }
+            default -> {
+                if (text.startsWith("true", at)) return literal(4, Boolean.TRUE);
+                if (text.startsWith("false", at)) return literal(5, Boolean.FALSE);
+                if (text.startsWith("null", at)) return literal(4, null);
+                int start = at;
+                while (at < text.length() && "+-0123456789.eE".indexOf(text.charAt(at)) >= 0) at++;
+                try {
+                    return Double.parseDouble(text.substring(start, at));
+                } catch (NumberFormatException e) {
+                    at = start;
+                    throw error("Unexpected character");
+                }
+            }
+        }
+    }
+
+    private String string() {
+        at++;
+        StringBuilder sb = new StringBuilder();
+        while (at < text.length()) {
+            char c = text.charAt(at++);
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (at == text.length()) break;
+            char e = text.charAt(at++);
+            switch (e) {
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'u' -> {
+                    if (at + 4 > text.length()) throw error("Bad escape");
+                    try {
+                        sb.append((char) Integer.parseInt(text.substring(at, at + 4), 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("Bad escape");
+                    }
+                    at += 4;
+                }
+                default -> sb.append(e);
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private Object literal(int length, Object value) {
+        at += length;
+        return value;
+    }
+
+    private boolean consume(char c) {
+        skipSpace();
+        if (at < text.length() && text.charAt(at) == c) {
+            at++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipSpace() {
+        while (at < text.length() && Character.isWhitespace(text.charAt(at))) at++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at offset " + at);
+    }
+}
@@ -8,58 +8,26 @@ import com.hoddmimes.bridgeanalyzer.model.Rank;
 import com.hoddmimes.bridgeanalyzer.model.Suit;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class LinParser {
 
+    /** All deals of a LIN file, plain or gzip-compressed; see {@link LinReader}. */
     public static List<Deal> parseFile(String filePath) throws IOException {
-        List<String> lines = Files.readAllLines(Path.of(filePath));
-        List<Deal> deals = new ArrayList<>();
-        int boardNum = 0;
-        for (String line : lines) {
-            line = line.trim();
-            if (line.isEmpty()) continue;
-            Deal deal = parseLine(line);
-            if (deal != null) {
-                boardNum++;
-                if (deal.boardNumber() == 0) {
-                    deal.setBoardNumber(boardNum);
-                }
-                deals.add(deal);
-            }
+        try (Stream<Deal> deals = LinReader.stream(Path.of(filePath))) {
+            return deals.collect(Collectors.toList());
         }
-        return deals;
     }
 
+    /** Parse one LIN line; returns null if it has no md tag. */
     public static Deal parseLine(String line) {
-        // Parse pipe-separated tag|value pairs
-        String[] tokens = line.split("\\|", -1);
-        Deal deal = new Deal();
-        String mdField = null;
-
-        for (int i = 0; i < tokens.length - 1; i += 2) {
-            String tag = tokens[i];
-            String value = tokens[i + 1];
-            switch (tag) {
-                case "qx" -> {
-                    // Extract board number from e.g. "o1" or "c3"
-                    String num = value.replaceAll("[^0-9]", "");
-                    if (!num.isEmpty()) {
-                        deal.setBoardNumber(Integer.parseInt(num));
-                    }
-                }
-                case "md" -> mdField = value;
-                case "ah" -> deal.setBoardName(value);
-                case "sv" -> deal.setVulnerability(value);
-            }
-        }
-
-        if (mdField == null) return null;
-        parseMd(deal, mdField);
-        return deal;
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return LinReader.parse(ByteBuffer.wrap(bytes), 0, bytes.length);
     }
 
     public static void parseMd(Deal deal, String md) {
@@ -0,0 +1,406 @@
+package com.hoddmimes.bridgeanalyzer.cli;
+
+import com.hoddmimes.bridgeanalyzer.game.Deal;
+import com.hoddmimes.bridgeanalyzer.game.Hand;
+import com.hoddmimes.bridgeanalyzer.game.PlayRecord;
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streaming LIN reader. Deals are parsed one line at a time straight from
+ * the bytes of the file, without regular expressions, intermediate strings
+ * or a list of all deals. The qx, md, ah and sv tags are read, and the
+ * auction and play (mb, pc and mc) into the deal's {@link PlayRecord}.
+ *
+ * Plain files are memory-mapped in windows of up to {@link #WINDOW} bytes.
+ * Their streams split at line boundaries, so a parallel stream parses
+ * chunks of the file on several threads. Gzip files are recognised by
+ * their magic bytes and decompressed on the fly; they are read in order.
+ *
+ * Deals without a number in qx are numbered by their position in the file,
+ * as {@link LinParser#parseFile} does, except in a memory-mapped stream
+ * that has been split: there a deal's position is unknown and its board
+ * number stays 0.
+ */
+public final class LinReader {
+    static final int WINDOW = 1 << 28;
+    // Plain-file chunks smaller than this are not split further
+    static final int MIN_SPLIT = 1 << 16;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int QX = 'q' << 8 | 'x';
+    private static final int MD = 'm' << 8 | 'd';
+    private static final int AH = 'a' << 8 | 'h';
+    private static final int SV = 's' << 8 | 'v';
+    private static final int MB = 'm' << 8 | 'b';
+    private static final int PC = 'p' << 8 | 'c';
+    private static final int MC = 'm' << 8 | 'c';
+
+    // Rank value per character, -1 if not a rank
+    private static final byte[] RANKS = new byte[128];
+    private static final Direction[] MD_HANDS = {Direction.SOUTH, Direction.WEST, Direction.NORTH};
+    private static final long FULL_DECK = (1L << 52) - 1;
+
+    static {
+        Arrays.fill(RANKS, (byte) -1);
+        String ranks = "23456789TJQKA";
+        for (int r = 0; r < ranks.length(); r++) {
+            RANKS[ranks.charAt(r)] = (byte) r;
+            RANKS[Character.toLowerCase(ranks.charAt(r))] = (byte) r;
+        }
+    }
+
+    private LinReader() {}
+
+    /**
+     * The deals of a LIN file, plain or gzip-compressed. The stream holds the
+     * file open until it is closed.
+     */
+    public static Stream<Deal> stream(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            Spliterator<Deal> deals;
+            Closeable source = channel;
+            if (isGzip(channel)) {
+                InputStream in = new GZIPInputStream(Channels.newInputStream(channel), BUFFER_SIZE);
+                deals = new GzipSpliterator(in);
+                source = in;
+            } else {
+                deals = new MappedSpliterator(channel, 0, channel.size());
+            }
+            Closeable toClose = source;
+            return StreamSupport.stream(deals, false).onClose(() -> {
+                try {
+                    toClose.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Parse one LIN line held in {@code buf[from, to)}; returns null if it
+     * has no md tag.
+     */
+    static Deal parse(ByteBuffer buf, int from, int to) {
+        while (from < to && buf.get(from) <= ' ') from++;
+        while (to > from && buf.get(to - 1) <= ' ') to--;
+
+        Deal deal = new Deal();
+        PlayRecord record = null;
+        // A bad auction or play tag drops the board's play record, not the deal
+        boolean badPlay = false;
+        int md = -1, mdEnd = -1;
+        int at = from;
+        while (at < to) {
+            int bar = indexOf(buf, '|', at, to);
+            if (bar < 0) break;
+            int valueEnd = indexOf(buf, '|', bar + 1, to);
+            if (valueEnd < 0) valueEnd = to;
+            if (bar - at == 2) {
+                int tag = buf.get(at) << 8 | buf.get(at + 1);
+                switch (tag) {
+                    case QX -> {
+                        // Board number from e.g. "o1" or "c3"
+                        int number = -1;
+                        for (int i = bar + 1; i < valueEnd; i++) {
+                            int d = buf.get(i) - '0';
+                            if (d >= 0 && d <= 9) number = Math.max(number, 0) * 10 + d;
+                        }
+                        if (number >= 0) deal.setBoardNumber(number);
+                    }
+                    case MD -> {
+                        md = bar + 1;
+                        mdEnd = valueEnd;
+                    }
+                    case AH -> deal.setBoardName(string(buf, bar + 1, valueEnd));
+                    case SV -> deal.setVulnerability(string(buf, bar + 1, valueEnd));
+                    case MB, PC, MC -> {
+                        if (record == null) record = new PlayRecord();
+                        if (!badPlay) badPlay = !addPlay(record, tag, buf, bar + 1, valueEnd);
+                    }
+                    default -> { }
+                }
+            }
+            at = valueEnd + 1;
+        }
+
+        if (md < 0) return null;
+        parseMd(deal, buf, md, mdEnd);
+        deal.setPlayRecord(badPlay ? null : record);
+        return deal;
+    }
+
+    /** Add an mb, pc or mc value to the record; false if the value is malformed. */
+    private static boolean addPlay(PlayRecord record, int tag, ByteBuffer buf, int from, int to) {
+        try {
+            switch (tag) {
+                case MB -> record.addBid(string(buf, from, to));
+                case PC -> record.addCard(parseCard(buf, from, to));
+                default -> record.setClaim(Integer.parseInt(string(buf, from, to).trim()));
+            }
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /** A played card such as "SA" or "h7", as a card bit index. */
+    private static int parseCard(ByteBuffer buf, int from, int to) {
+        while (from < to && buf.get(from) <= ' ') from++;
+        while (to > from && buf.get(to - 1) <= ' ') to--;
+        int suit = to - from == 2 ? "SHDC".indexOf(Character.toUpperCase(buf.get(from))) : -1;
+        int c = to - from == 2 ? buf.get(from + 1) : -1;
+        int rank = c >= 0 && c < RANKS.length ? RANKS[c] : -1;
+        if (suit < 0 || rank < 0) throw new IllegalArgumentException("Bad played card: " + string(buf, from, to));
+        return suit * 13 + rank;
+    }
+
+    /** The md value: dealer digit, then South, West and North; East gets the rest. */
+    private static void parseMd(Deal deal, ByteBuffer buf, int from, int to) {
+        if (from == to) throw new IllegalArgumentException("Empty md tag");
+        deal.setDealer(switch (buf.get(from)) {
+            case '1' -> Direction.SOUTH;
+            case '2' -> Direction.WEST;
+            case '4' -> Direction.EAST;
+            default -> Direction.NORTH;
+        });
+
+        long all = 0, bits = 0;
+        int hand = 0, suit = -1;
+        for (int i = from + 1; i < to && hand < 3; i++) {
+            int c = buf.get(i);
+            switch (c) {
+                case 'S' -> suit = 0;
+                case 'H' -> suit = 1;
+                case 'D' -> suit = 2;
+                case 'C' -> suit = 3;
+                case ',' -> {
+                    deal.setHand(MD_HANDS[hand++], new Hand(bits));
+                    all |= bits;
+                    bits = 0;
+                    suit = -1;
+                }
+                default -> {
+                    if (suit < 0) continue;
+                    int rank = c >= 0 && c < RANKS.length ? RANKS[c] : -1;
+                    if (rank < 0) throw new IllegalArgumentException("Unknown rank: " + (char) (c & 0xFF));
+                    bits |= 1L << (suit * 13 + rank);
+                }
+            }
+        }
+        if (hand < 3) {
+            deal.setHand(MD_HANDS[hand], new Hand(bits));
+            all |= bits;
+        }
+        deal.setHand(Direction.EAST, new Hand(FULL_DECK & ~all));
+    }
+
+    private static int indexOf(ByteBuffer buf, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf.get(i) == c) return i;
+        }
+        return -1;
+    }
+
+    private static String string(ByteBuffer buf, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buf.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isGzip(FileChannel channel) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(2);
+        while (magic.hasRemaining() && channel.read(magic, magic.position()) > 0) { }
+        return magic.position() == 2 && (magic.get(0) & 0xFF) == 0x1F && (magic.get(1) & 0xFF) == 0x8B;
+    }
+
+    /**
+     * Deals of the lines in {@code [pos, end)} of a plain file; both ends are
+     * line starts. Splits in two halves at the first line start after the
+     * middle.
+     */
+    private static final class MappedSpliterator implements Spliterator<Deal> {
+        private final FileChannel channel;
+        private long pos;
+        private final long end;
+        private MappedByteBuffer window;
+        private long windowStart;
+        // Deals read so far, and whether that is their position in the file
+        private int ordinal;
+        private boolean numbered = true;
+
+        MappedSpliterator(FileChannel channel, long pos, long end) {
+            this.channel = channel;
+            this.pos = pos;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Deal> action) {
+            while (pos < end) {
+                Deal deal = nextLine();
+                if (deal != null) {
+                    ordinal++;
+                    if (numbered && deal.boardNumber() == 0) deal.setBoardNumber(ordinal);
+                    action.accept(deal);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Parse the line at pos and move past it. */
+        private Deal nextLine() {
+            int from = offset(pos);
+            int stop = (int) Math.min(window.limit(), end - windowStart);
+            int eol = indexOf(window, '\n', from, stop);
+            if (eol < 0 && windowStart + stop < end) {
+                // The line crosses the window: map a new one starting at the line
+                if (from == 0) {
+                    throw new UncheckedIOException(new IOException("LIN line longer than " + WINDOW
+                            + " bytes at offset " + pos));
+                }
+                map(pos);
+                return nextLine();
+            }
+            int lineEnd = eol < 0 ? stop : eol;
+            pos = windowStart + lineEnd + 1;
+            return parse(window, from, lineEnd);
+        }
+
+        private int offset(long at) {
+            if (window == null || at < windowStart || at >= windowStart + window.limit()) {
+                map(at);
+            }
+            return (int) (at - windowStart);
+        }
+
+        private void map(long at) {
+            try {
+                window = channel.map(FileChannel.MapMode.READ_ONLY, at, Math.min(WINDOW, end - at));
+                windowStart = at;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Spliterator<Deal> trySplit() {
+            if (end - pos < MIN_SPLIT) return null;
+            long cut = lineStart(pos + (end - pos) / 2);
+            if (cut >= end) return null;
+            MappedSpliterator prefix = new MappedSpliterator(channel, pos, cut);
+            prefix.numbered = false;
+            numbered = false;
+            pos = cut;
+            return prefix;
+        }
+
+        /** The first line start at or after the position, or end. */
+        private long lineStart(long at) {
+            ByteBuffer buf = ByteBuffer.allocate(4096);
+            try {
+                for (long p = at - 1; p < end; p += buf.limit()) {
+                    buf.clear();
+                    if (channel.read(buf, p) <= 0) return end;
+                    buf.flip();
+                    int eol = indexOf(buf, '\n', 0, buf.limit());
+                    if (eol >= 0) return p + eol + 1;
+                }
+                return end;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public long estimateSize() { return end - pos; }
+
+        @Override
+        public int characteristics() { return ORDERED | NONNULL | IMMUTABLE; }
+    }
+
+    /**
+     * Deals of a compressed stream, read in order through a buffer that
+     * grows to the longest line. Parallel streams take batches of deals
+     * from it.
+     */
+    private static final class GzipSpliterator extends Spliterators.AbstractSpliterator<Deal> {
+        private final InputStream in;
+        private byte[] bytes = new byte[BUFFER_SIZE];
+        private ByteBuffer buf = ByteBuffer.wrap(bytes);
+        private int start, limit;
+        private boolean eof;
+        private int ordinal;
+
+        GzipSpliterator(InputStream in) {
+            super(Long.MAX_VALUE, ORDERED | NONNULL | IMMUTABLE);
+            this.in = in;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Deal> action) {
+            while (start < limit || !eof) {
+                int eol = indexOf(buf, '\n', start, limit);
+                if (eol < 0 && !eof) {
+                    fill();
+                    continue;
+                }
+                int lineEnd = eol < 0 ? limit : eol;
+                Deal deal = parse(buf, start, lineEnd);
+                start = lineEnd + 1;
+                if (deal != null) {
+                    ordinal++;
+                    if (deal.boardNumber() == 0) deal.setBoardNumber(ordinal);
+                    action.accept(deal);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Move the partial line to the front, grow if it fills the buffer, and read more. */
+        private void fill() {
+            System.arraycopy(bytes, start, bytes, 0, limit - start);
+            limit -= start;
+            start = 0;
+            if (limit == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                buf = ByteBuffer.wrap(bytes);
+            }
+            try {
+                int n = in.read(bytes, limit, bytes.length - limit);
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    limit += n;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -3,37 +3,71 @@ package com.hoddmimes.bridgeanalyzer.cli;
 import com.hoddmimes.bridgeanalyzer.game.Deal;
 import com.hoddmimes.bridgeanalyzer.model.Direction;
 import com.hoddmimes.bridgeanalyzer.model.Trump;
+import com.hoddmimes.bridgeanalyzer.solver.AlphaBetaSolver;
+import com.hoddmimes.bridgeanalyzer.solver.CachingSolver;
+import com.hoddmimes.bridgeanalyzer.solver.DDTable;
+import com.hoddmimes.bridgeanalyzer.solver.ParCalculator;
+import com.hoddmimes.bridgeanalyzer.solver.PlayAnalysis;
+import com.hoddmimes.bridgeanalyzer.solver.PlayAnalyzer;
+import com.hoddmimes.bridgeanalyzer.solver.ResultCache;
 import com.hoddmimes.bridgeanalyzer.solver.Solver;
 import com.hoddmimes.bridgeanalyzer.solver.SolverFactory;
+import com.hoddmimes.bridgeanalyzer.solver.SolverStats;
+import com.hoddmimes.bridgeanalyzer.solver.TranspositionTable;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.HashMap;
-import java.util.List;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public class Main {
+    private static final ThreadLocal<ParCalculator> PAR = ThreadLocal.withInitial(ParCalculator::new);
 
     public static void main(String[] args) throws Exception {
         Map<String, String> params = parseArgs(args);
 
         String solverName = params.getOrDefault("solver", "alphabeta");
-        Solver solver = SolverFactory.create(solverName);
+        int ttSizeMb = Integer.parseInt(params.getOrDefault("tt-mb",
+                String.valueOf(TranspositionTable.DEFAULT_SIZE_MB)));
+        int threads = Integer.parseInt(params.getOrDefault("threads", "1"));
+        int searchThreads = Integer.parseInt(params.getOrDefault("search-threads", "1"));
+        boolean stats = params.containsKey("stats");
+        // Recorded play against double dummy instead of the deals' tables
+        boolean analyze = params.containsKey("analyze");
 
-        List<Deal> deals;
+        if (params.containsKey("file") && params.containsKey("convert")) {
+            long count = DealFile.convert(Path.of(params.get("file")), Path.of(params.get("convert")));
+            System.out.println("Wrote " + count + " deals to " + params.get("convert"));
+            return;
+        }
+
+        // Deals are streamed from the file (LIN or binary) and solved as they are read
+        Stream<Deal> deals;
+        AtomicInteger found = new AtomicInteger();
         if (params.containsKey("file")) {
-            deals = LinParser.parseFile(params.get("file"));
+            Path path = Path.of(params.get("file"));
+            deals = DealFile.isDealFile(path) ? DealFile.stream(path) : LinReader.stream(path);
             if (params.containsKey("board")) {
                 int boardNum = Integer.parseInt(params.get("board"));
-                deals = deals.stream()
-                        .filter(d -> d.boardNumber() == boardNum)
-                        .toList();
-                if (deals.isEmpty()) {
-                    System.err.println("Board " + boardNum + " not found in file.");
-                    System.exit(1);
-                }
+                deals = deals.filter(d -> d.boardNumber() == boardNum).peek(d -> found.incrementAndGet());
             }
+        } else if (params.containsKey("random")) {
+            // --random=<count> deals, reproducible with --seed, hands constrained with --north=<constraint> etc.
+            DealGenerator generator = new DealGenerator(seed(params));
+            for (Direction dir : Direction.values()) {
+                String constraint = params.get(dir.name().toLowerCase());
+                if (constraint != null) generator.constrain(dir, HandConstraint.parse(constraint));
+            }
+            deals = generator.stream(Long.parseLong(params.get("random")));
         } else {
-            deals = List.of(DealGenerator.generate());
+            deals = Stream.of(DealGenerator.generate());
         }
 
         Trump[] trumps;
@@ -50,44 +84,193 @@ public class Main {
             declarers = Direction.values();
         }
 
-        for (Deal deal : deals) {
-            printDeal(deal, solver, trumps, declarers);
+        // Tables from earlier runs, shared by all solvers
+        ResultCache cache = null;
+        if (params.containsKey("cache")) {
+            int cacheMb = Integer.parseInt(params.getOrDefault("cache-mb",
+                    String.valueOf(ResultCache.DEFAULT_SIZE_MB)));
+            cache = ResultCache.open(Path.of(params.get("cache")), cacheMb);
+        }
+        ResultCache results = cache;
+        Supplier<Solver> solvers = () -> {
+            Solver solver = SolverFactory.create(solverName, ttSizeMb, searchThreads);
+            return results != null && !analyze ? new CachingSolver(solver, results) : solver;
+        };
+
+        if (params.containsKey("serve")) {
+            // --serve[=port]: HTTP/JSON solver service on localhost, see SolverServer
+            String port = params.get("serve");
+            SolverServer server = new SolverServer(
+                    port.equals("true") ? SolverServer.DEFAULT_PORT : Integer.parseInt(port),
+                    params.containsKey("threads") ? threads : Runtime.getRuntime().availableProcessors(),
+                    Integer.parseInt(params.getOrDefault("queue", String.valueOf(SolverServer.DEFAULT_QUEUE_DEPTH))),
+                    solvers);
+            server.start(Integer.parseInt(params.getOrDefault("warmup", "500")));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                try {
+                    if (results != null) results.close();
+                } catch (IOException e) {
+                    System.err.println("Closing the cache failed: " + e.getMessage());
+                }
+            }));
+            System.out.println("Solver service listening on http://localhost:" + server.port() + "/solve");
+            Thread.currentThread().join();
+            return;
+        }
+
+        if (params.containsKey("simulate")) {
+            try (results) {
+                simulate(params, trumps, params.containsKey("declarer") ? declarers
+                        : new Direction[]{Direction.NORTH, Direction.SOUTH}, solvers);
+            }
+            return;
+        }
+
+        BiFunction<Deal, Solver, String> format = analyze ? (deal, solver) -> formatPlay(deal, solver, stats)
+                : (deal, solver) -> formatDeal(deal, solver, trumps, declarers, stats);
+        try (Stream<Deal> source = deals; results) {
+            if (threads > 1) {
+                BatchRunner.run(source::iterator, threads, solvers, format, System.out);
+            } else {
+                Solver solver = solvers.get();
+                for (Iterator<Deal> it = source.iterator(); it.hasNext(); ) {
+                    System.out.print(format.apply(it.next(), solver));
+                }
+            }
+        }
+        if (params.containsKey("file") && params.containsKey("board") && found.get() == 0) {
+            System.err.println("Board " + params.get("board") + " not found in file.");
+            System.exit(1);
         }
     }
 
-    private static void printDeal(Deal deal, Solver solver, Trump[] trumps, Direction[] declarers) {
-        System.out.printf("Board %d: %s%n", deal.boardNumber(),
-                deal.boardName() != null ? deal.boardName() : "");
-        System.out.print(deal.displayHands());
+    /**
+     * Single-dummy simulation of at most --simulate=<deals> deals (default 1000).
+     * Known cards are given with --north-hand=SAKQ2HJ32D... etc., the hidden hands
+     * may be constrained with --east=<constraint> etc. The trick distributions are
+     * printed every --progress deals, and the run stops early once the widest 95%
+     * confidence interval is within --target (e.g. 0.02), after at least --min-deals.
+     */
+    private static void simulate(Map<String, String> params, Trump[] trumps, Direction[] declarers,
+                                 Supplier<Solver> solvers) throws InterruptedException {
+        DealGenerator generator = new DealGenerator(seed(params));
+        for (Direction dir : Direction.values()) {
+            String name = dir.name().toLowerCase();
+            HandConstraint constraint = params.containsKey(name) ? HandConstraint.parse(params.get(name)) : null;
+            if (params.containsKey(name + "-hand")) {
+                long cards = LinParser.parseHand(params.get(name + "-hand")).bits();
+                constraint = (constraint != null ? constraint : new HandConstraint()).cards(cards);
+            }
+            if (constraint != null) generator.constrain(dir, constraint);
+        }
+        String count = params.get("simulate");
+        Simulation simulation = new Simulation(generator, solvers)
+                .strains(trumps)
+                .declarers(declarers)
+                .deals(Long.parseLong(params.getOrDefault("min-deals", "100")),
+                        count.equals("true") ? 1000 : Long.parseLong(count))
+                .target(Double.parseDouble(params.getOrDefault("target", "0")));
+        if (params.containsKey("threads")) simulation.threads(Integer.parseInt(params.get("threads")));
+
+        long every = Long.parseLong(params.getOrDefault("progress", "100"));
+        long[] reported = {0};
+        SimulationResult result = simulation.run(partial -> {
+            if (partial.deals() >= reported[0] + every) {
+                System.out.println(partial);
+                reported[0] = partial.deals();
+            }
+        });
+        if (result.deals() != reported[0]) System.out.println(result);
+    }
+
+    private static long seed(Map<String, String> params) {
+        return params.containsKey("seed") ? Long.parseLong(params.get("seed")) : new SplittableRandom().nextLong();
+    }
+
+    /** @param stats append the solver's search counters for the deal, if it keeps any */
+    static String formatDeal(Deal deal, Solver solver, Trump[] trumps, Direction[] declarers, boolean stats) {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("Board %d: %s%n", deal.boardNumber(),
+                deal.boardName() != null ? deal.boardName() : ""));
+        out.append(deal.displayHands());
 
         // Header
-        System.out.printf("%n       ");
+        out.append(String.format("%n       "));
         for (Trump t : trumps) {
-            System.out.printf("%-4s", t.label());
+            out.append(String.format("%-4s", t.label()));
         }
-        System.out.println();
+        out.append(System.lineSeparator());
 
         long startTime = System.nanoTime();
 
+        // The full table is solved in one call so the cells can share work
+        boolean fullTable = trumps.length == Trump.values().length && declarers.length == Direction.values().length;
+        DDTable table = fullTable ? solver.solveTable(deal) : null;
+        SolverStats dealStats = table != null ? solver.lastStats() : null;
+
         for (Direction declarer : declarers) {
-            System.out.printf("  %s:   ", declarer.name().charAt(0));
+            out.append(String.format("  %s:   ", declarer.name().charAt(0)));
             for (Trump trump : trumps) {
-                int nsTricks = solver.solve(deal, trump, declarer);
                 int tricks;
-                if (declarer.isNS()) {
-                    tricks = nsTricks;
+                if (table != null) {
+                    tricks = table.tricks(trump, declarer);
                 } else {
-                    tricks = deal.hand(Direction.NORTH).cardCount() - nsTricks;
+                    int nsTricks = solver.solve(deal, trump, declarer);
+                    if (solver.lastStats() != null) {
+                        if (dealStats == null) dealStats = new SolverStats();
+                        dealStats.add(solver.lastStats());
+                    }
+                    if (declarer.isNS()) {
+                        tricks = nsTricks;
+                    } else {
+                        tricks = deal.hand(Direction.NORTH).cardCount() - nsTricks;
+                    }
                 }
-                System.out.printf("%-4d", tricks);
+                out.append(String.format("%-4d", tricks));
             }
-            System.out.println();
+            out.append(System.lineSeparator());
+        }
+
+        if (table != null) {
+            ParCalculator par = PAR.get();
+            par.compute(table, deal);
+            out.append(String.format("%n  Par: %s%n", par.describe()));
         }
 
         long elapsed = System.nanoTime() - startTime;
         Duration d = Duration.ofNanos(elapsed);
-        System.out.printf("%nSolve time: %02d:%02d:%02d.%03d%n%n",
-                d.toHours(), d.toMinutesPart(), d.toSecondsPart(), d.toMillisPart());
+        out.append(String.format("%nSolve time: %02d:%02d:%02d.%03d%n%n",
+                d.toHours(), d.toMinutesPart(), d.toSecondsPart(), d.toMillisPart()));
+        if (stats && dealStats != null) {
+            out.append(dealStats).append(System.lineSeparator());
+        }
+        return out.toString();
+    }
+
+    /** The deal's recorded play with the double-dummy value after every trick and the costly cards marked. */
+    static String formatPlay(Deal deal, Solver solver, boolean stats) {
+        if (!(solver instanceof AlphaBetaSolver alphaBeta)) {
+            throw new IllegalArgumentException("Play analysis needs an alpha-beta solver");
+        }
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("Board %d: %s%n", deal.boardNumber(),
+                deal.boardName() != null ? deal.boardName() : ""));
+        long startTime = System.nanoTime();
+        PlayAnalyzer analyzer = new PlayAnalyzer(alphaBeta);
+        PlayAnalysis analysis = analyzer.analyze(deal);
+        if (analysis == null) {
+            out.append(String.format("  No contract played%n%n"));
+            return out.toString();
+        }
+        out.append(analysis);
+        Duration d = Duration.ofNanos(System.nanoTime() - startTime);
+        out.append(String.format("%nSolve time: %02d:%02d:%02d.%03d%n%n",
+                d.toHours(), d.toMinutesPart(), d.toSecondsPart(), d.toMillisPart()));
+        if (stats) {
+            out.append(analyzer.lastStats()).append(System.lineSeparator());
+        }
+        return out.toString();
     }
 
     private static Map<String, String> parseArgs(String[] args) {
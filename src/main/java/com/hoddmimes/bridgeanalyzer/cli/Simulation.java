@@ -0,0 +1,126 @@
+package com.hoddmimes.bridgeanalyzer.cli;
+
+import com.hoddmimes.bridgeanalyzer.game.Deal;
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+import com.hoddmimes.bridgeanalyzer.model.Trump;
+import com.hoddmimes.bridgeanalyzer.solver.Solver;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Single-dummy simulation: deals from a generator whose known hands are
+ * given cards (and whose hidden hands may be constrained) are solved
+ * double-dummy on a work-stealing pool, and the declarer's tricks are
+ * tallied per strain and declarer.
+ *
+ * Deals are solved in blocks; block i is dealt by the generator's stream
+ * i (see {@link DealGenerator#forStream}) and blocks are added to the
+ * result in order, so a seed gives the same result on any number of
+ * threads. After each block the result is passed to a progress callback,
+ * and the simulation stops once the widest confidence interval (see
+ * {@link SimulationResult#halfWidth}) is within the target.
+ */
+public class Simulation {
+    private static final int BLOCK = 8;
+    private static final int TASKS_PER_THREAD = 2;
+
+    private final DealGenerator generator;
+    private final Supplier<Solver> solvers;
+    private Trump[] trumps = Trump.values();
+    private Direction[] declarers = {Direction.NORTH, Direction.SOUTH};
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long minDeals = 100;
+    private long maxDeals = 1000;
+    private double target;
+
+    /** @param solvers makes the solver of each worker thread */
+    public Simulation(DealGenerator generator, Supplier<Solver> solvers) {
+        this.generator = generator;
+        this.solvers = solvers;
+    }
+
+    public Simulation strains(Trump... trumps) {
+        this.trumps = trumps.clone();
+        return this;
+    }
+
+    public Simulation declarers(Direction... declarers) {
+        this.declarers = declarers.clone();
+        return this;
+    }
+
+    /** Worker threads; all cores by default. */
+    public Simulation threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /** Simulate at least min deals before stopping on the target, and at most max. */
+    public Simulation deals(long min, long max) {
+        this.minDeals = min;
+        this.maxDeals = max;
+        return this;
+    }
+
+    /** Stop when the widest 95% confidence interval half-width is at most this; 0 runs all deals. */
+    public Simulation target(double halfWidth) {
+        this.target = halfWidth;
+        return this;
+    }
+
+    /** Run the simulation; the callback gets a snapshot of the result after every block. */
+    public SimulationResult run(Consumer<SimulationResult> progress) throws InterruptedException {
+        ThreadLocal<Solver> solver = ThreadLocal.withInitial(solvers);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        SimulationResult total = new SimulationResult(trumps, declarers);
+        try {
+            long blocks = (maxDeals + BLOCK - 1) / BLOCK;
+            long next = 0;
+            ArrayDeque<ForkJoinTask<SimulationResult>> pending = new ArrayDeque<>();
+            while (true) {
+                while (next < blocks && pending.size() < threads * TASKS_PER_THREAD) {
+                    long block = next++;
+                    pending.add(pool.submit(() -> solveBlock(block, solver.get())));
+                }
+                if (pending.isEmpty()) break;
+                total.add(result(pending.poll()));
+                progress.accept(total.copy());
+                if (target > 0 && total.deals() >= minDeals && total.halfWidth() <= target) break;
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return total;
+    }
+
+    private SimulationResult solveBlock(long block, Solver solver) {
+        DealGenerator blockGenerator = generator.forStream(block);
+        SimulationResult part = new SimulationResult(trumps, declarers);
+        long first = block * BLOCK;
+        for (long i = first; i < Math.min(first + BLOCK, maxDeals); i++) {
+            Deal deal = blockGenerator.next((int) (i + 1));
+            int total = deal.hand(Direction.NORTH).cardCount();
+            for (int t = 0; t < trumps.length; t++) {
+                for (int d = 0; d < declarers.length; d++) {
+                    int nsTricks = solver.solve(deal, trumps[t], declarers[d]);
+                    part.record(t * declarers.length + d, declarers[d].isNS() ? nsTricks : total - nsTricks);
+                }
+            }
+            part.countDeal();
+        }
+        return part;
+    }
+
+    private static SimulationResult result(ForkJoinTask<SimulationResult> task) throws InterruptedException {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Simulating a block of deals failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.hoddmimes.bridgeanalyzer.cli;
+
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+import com.hoddmimes.bridgeanalyzer.model.Trump;
+
+/**
+ * Trick distributions of a simulation: for each strain and declarer the
+ * number of deals on which the declarer took each number of tricks.
+ */
+public final class SimulationResult {
+    private static final double Z95 = 1.96;
+
+    private final Trump[] trumps;
+    private final Direction[] declarers;
+    // Per cell (trump * declarers + declarer) deals by declarer's tricks
+    private final long[][] counts;
+    private long deals;
+
+    SimulationResult(Trump[] trumps, Direction[] declarers) {
+        this.trumps = trumps;
+        this.declarers = declarers;
+        this.counts = new long[trumps.length * declarers.length][14];
+    }
+
+    /** Deals simulated. */
+    public long deals() { return deals; }
+
+    /** Deals on which the declarer took exactly the given tricks in the strain. */
+    public long count(Trump trump, Direction declarer, int tricks) {
+        return counts[cell(trump, declarer)][tricks];
+    }
+
+    /** Fraction of the deals on which the declarer took at least the given tricks. */
+    public double probability(Trump trump, Direction declarer, int minTricks) {
+        return deals == 0 ? 0 : (double) atLeast(counts[cell(trump, declarer)], minTricks) / deals;
+    }
+
+    /** Mean tricks of the declarer in the strain. */
+    public double mean(Trump trump, Direction declarer) {
+        long[] c = counts[cell(trump, declarer)];
+        long sum = 0;
+        for (int t = 0; t < c.length; t++) {
+            sum += t * c[t];
+        }
+        return deals == 0 ? 0 : (double) sum / deals;
+    }
+
+    /**
+     * The widest 95% confidence interval half-width of the probabilities
+     * of taking at least k tricks, over all strains, declarers and k.
+     */
+    public double halfWidth() {
+        if (deals == 0) return 1;
+        double widest = 0;
+        for (long[] c : counts) {
+            for (int k = 1; k < c.length; k++) {
+                double p = (double) atLeast(c, k) / deals;
+                widest = Math.max(widest, Z95 * Math.sqrt(p * (1 - p) / deals));
+            }
+        }
+        return widest;
+    }
+
+    void record(int cell, int tricks) {
+        counts[cell][tricks]++;
+    }
+
+    void countDeal() {
+        deals++;
+    }
+
+    void add(SimulationResult other) {
+        for (int i = 0; i < counts.length; i++) {
+            for (int t = 0; t < counts[i].length; t++) {
+                counts[i][t] += other.counts[i][t];
+            }
+        }
+        deals += other.deals;
+    }
+
+    SimulationResult copy() {
+        SimulationResult copy = new SimulationResult(trumps, declarers);
+        copy.add(this);
+        return copy;
+    }
+
+    /** Per strain and declarer the mean tricks and how often each level makes. */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Deals: %d, 95%% CI +-%.1f%%%n", deals, 100 * halfWidth()));
+        for (Trump trump : trumps) {
+            for (Direction declarer : declarers) {
+                sb.append(String.format("  %-2s by %s: mean %5.2f ", trump.label(), declarer.name().charAt(0),
+                        mean(trump, declarer)));
+                for (int level = 1; level <= 7; level++) {
+                    sb.append(String.format(" %d%s %5.1f%%", level, trump.label(),
+                            100 * probability(trump, declarer, level + 6)));
+                }
+                sb.append(System.lineSeparator());
+            }
+        }
+        return sb.toString();
+    }
+
+    private int cell(Trump trump, Direction declarer) {
+        for (int t = 0; t < trumps.length; t++) {
+            for (int d = 0; d < declarers.length; d++) {
+                if (trumps[t] == trump && declarers[d] == declarer) return t * declarers.length + d;
+            }
+        }
+        throw new IllegalArgumentException("Not simulated: " + trump + " by " + declarer);
+    }
+
+    private static long atLeast(long[] c, int minTricks) {
+        long n = 0;
+        for (int t = minTricks; t < c.length; t++) {
+            n += c[t];
+        }
+        return n;
+    }
+}
@@ -0,0 +1,390 @@
+package com.hoddmimes.bridgeanalyzer.cli;
+
+import com.hoddmimes.bridgeanalyzer.game.Deal;
+import com.hoddmimes.bridgeanalyzer.game.Hand;
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+import com.hoddmimes.bridgeanalyzer.model.Rank;
+import com.hoddmimes.bridgeanalyzer.model.Trump;
+import com.hoddmimes.bridgeanalyzer.solver.DDTable;
+import com.hoddmimes.bridgeanalyzer.solver.ParCalculator;
+import com.hoddmimes.bridgeanalyzer.solver.Solver;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Long-running solver service: HTTP/JSON on the loopback interface, on the
+ * JDK's built-in server, so lookups do not pay JVM startup and JIT warm-up.
+ *
+ * {@code POST /solve} takes a deal, {@code {"md": "<LIN md>"}} or
+ * {@code {"pbn": "N:AK96.KQ8.A98.K63 ..."}} with an optional {@code vul}
+ * (0, N, E or B) and {@code id}, and answers its double-dummy table and par,
+ * {@code {"id": ..., "table": {"S": {"N": 9, "E": 4, "S": 9, "W": 4}, ...},
+ * "par": "4S by N +420", "micros": 812}}. A batch, {@code {"deals": [...]}},
+ * is answered as {@code {"results": [...]}} in the same order.
+ * {@code GET /stats} answers the throughput and latency counters.
+ *
+ * Deals are solved by a fixed set of worker threads, each with its own
+ * solver, which are warmed up before the server takes requests. Requests
+ * are handled on virtual threads where the runtime has them, and wait for
+ * the workers; when a request's deals do not fit in the bounded queue it
+ * is answered 503 at once.
+ */
+public class SolverServer implements Closeable {
+    public static final int DEFAULT_PORT = 8090;
+    public static final int DEFAULT_QUEUE_DEPTH = 1024;
+    // Cards per hand of the deals solved to warm up the JIT
+    private static final int WARMUP_CARDS = 6;
+
+    private final HttpServer http;
+    private final ThreadPoolExecutor workers;
+    private final ExecutorService handlers;
+    private final ThreadLocal<Solver> solver;
+    private final ThreadLocal<ParCalculator> par = ThreadLocal.withInitial(ParCalculator::new);
+    private final Counters counters = new Counters();
+
+    /**
+     * @param port       0 for any free port, see {@link #port()}
+     * @param threads    worker threads, each with a solver from {@code solvers}
+     * @param queueDepth deals that may wait for a worker
+     */
+    public SolverServer(int port, int threads, int queueDepth, Supplier<Solver> solvers) throws IOException {
+        this.solver = ThreadLocal.withInitial(solvers);
+        AtomicInteger workerId = new AtomicInteger();
+        ThreadFactory daemons = r -> {
+            Thread t = new Thread(r, "solver-" + workerId.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueDepth), daemons);
+        this.handlers = handlerExecutor();
+        this.http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        http.setExecutor(handlers);
+        http.createContext("/solve", this::solve);
+        http.createContext("/stats", this::stats);
+    }
+
+    /**
+     * Warm up the workers on small random deals, then start taking requests.
+     * Each worker gets one warm-up task, which creates its thread and its
+     * solver without going through the queue.
+     */
+    public void start(int warmupDeals) throws InterruptedException {
+        int threads = workers.getCorePoolSize();
+        CountDownLatch warm = new CountDownLatch(threads);
+        List<Future<?>> warmups = new ArrayList<>();
+        for (int w = 0; w < threads; w++) {
+            DealGenerator generator = new DealGenerator(w);
+            int share = warmupDeals / threads + (w < warmupDeals % threads ? 1 : 0);
+            warmups.add(workers.submit(() -> {
+                try {
+                    Solver worker = solver.get();
+                    for (int i = 0; i < share; i++) {
+                        worker.solveTable(shorten(generator.next(i + 1), WARMUP_CARDS));
+                    }
+                } finally {
+                    warm.countDown();
+                }
+                // Hold the worker until all are warm, so none takes a second task
+                warm.await();
+                return null;
+            }));
+        }
+        for (Future<?> warmup : warmups) {
+            try {
+                warmup.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Warming up the solvers failed", e.getCause());
+            }
+        }
+        counters.reset();
+        http.start();
+    }
+
+    /** The port the server listens on. */
+    public int port() {
+        return http.getAddress().getPort();
+    }
+
+    /** The counters as JSON, as answered by GET /stats. */
+    public String stats() {
+        return counters.toJson(workers);
+    }
+
+    @Override
+    public void close() {
+        http.stop(0);
+        workers.shutdownNow();
+        handlers.shutdownNow();
+    }
+
+    private void solve(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, error("Use POST"));
+                return;
+            }
+            List<Deal> deals = new ArrayList<>();
+            List<Object> ids = new ArrayList<>();
+            boolean batch;
+            try {
+                Object request = Json.parse(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+                batch = request instanceof Map<?, ?> map && map.containsKey("deals");
+                List<?> items = batch ? (List<?>) ((Map<?, ?>) request).get("deals") : List.of(request);
+                for (Object item : items) {
+                    if (!(item instanceof Map<?, ?> map)) throw new IllegalArgumentException("A deal must be an object");
+                    deals.add(deal(map));
+                    ids.add(map.get("id"));
+                }
+            } catch (RuntimeException e) {
+                counters.errors.increment();
+                respond(exchange, 400, error(e.getMessage() != null ? e.getMessage() : e.toString()));
+                return;
+            }
+
+            List<Future<String>> results = new ArrayList<>(deals.size());
+            try {
+                for (int i = 0; i < deals.size(); i++) {
+                    Deal deal = deals.get(i);
+                    Object id = ids.get(i);
+                    results.add(workers.submit(() -> solveDeal(deal, id)));
+                }
+            } catch (RejectedExecutionException e) {
+                results.forEach(result -> result.cancel(false));
+                counters.rejected.increment();
+                respond(exchange, 503, error("Solver queue full"));
+                return;
+            }
+
+            StringBuilder body = new StringBuilder(batch ? "{\"results\":[" : "");
+            for (int i = 0; i < results.size(); i++) {
+                if (i > 0) body.append(',');
+                body.append(results.get(i).get());
+            }
+            if (batch) body.append("]}");
+            respond(exchange, 200, body.toString());
+            counters.request(deals.size(), System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, error("Server stopping"));
+        } catch (ExecutionException e) {
+            counters.errors.increment();
+            respond(exchange, 500, error(String.valueOf(e.getCause())));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        try {
+            respond(exchange, 200, stats());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /** The table and par of the deal as JSON; runs on a worker. */
+    private String solveDeal(Deal deal, Object id) {
+        long start = System.nanoTime();
+        DDTable table = solver.get().solveTable(deal);
+        ParCalculator calculator = par.get();
+        calculator.compute(table, deal);
+
+        StringBuilder json = new StringBuilder("{");
+        if (id != null) json.append("\"id\":").append(idJson(id)).append(',');
+        json.append("\"table\":{");
+        for (Trump trump : Trump.values()) {
+            if (trump.ordinal() > 0) json.append(',');
+            json.append('"').append(trump.label()).append("\":{");
+            for (Direction declarer : Direction.values()) {
+                if (declarer.index() > 0) json.append(',');
+                json.append('"').append(declarer.name().charAt(0)).append("\":").append(table.tricks(trump, declarer));
+            }
+            json.append('}');
+        }
+        json.append("},\"par\":").append(Json.quote(calculator.describe()));
+        json.append(",\"micros\":").append((System.nanoTime() - start) / 1000).append('}');
+        return json.toString();
+    }
+
+    /** A request's id as given: a whole number without a fraction, anything else as a string. */
+    private static String idJson(Object id) {
+        if (id instanceof Double d && d == Math.rint(d) && !d.isInfinite()) return String.valueOf(d.longValue());
+        if (id instanceof Number || id instanceof Boolean) return String.valueOf(id);
+        return Json.quote(String.valueOf(id));
+    }
+
+    /** A deal of a request, from its md or pbn field. */
+    private static Deal deal(Map<?, ?> item) {
+        Deal deal;
+        if (item.get("md") instanceof String md) {
+            deal = new Deal();
+            LinParser.parseMd(deal, md);
+        } else if (item.get("pbn") instanceof String pbn) {
+            deal = parsePbn(pbn);
+        } else {
+            throw new IllegalArgumentException("A deal needs an md or pbn field");
+        }
+        if (item.get("vul") instanceof String vul) deal.setVulnerability(vul);
+        int cards = deal.hand(Direction.NORTH).cardCount();
+        for (Direction dir : Direction.values()) {
+            if (deal.hand(dir).cardCount() != cards || cards == 0) {
+                throw new IllegalArgumentException("The hands must hold the same number of cards");
+            }
+        }
+        return deal;
+    }
+
+    /**
+     * A PBN deal: the first hand's direction, ':' and the hands clockwise as
+     * spades.hearts.diamonds.clubs, e.g. {@code N:AK96.KQ8.A98.K63 QJT5.432.T6.QJ82 ...}.
+     * The first hand's direction is taken as the dealer.
+     */
+    public static Deal parsePbn(String pbn) {
+        String s = pbn.trim();
+        if (s.length() < 2 || s.charAt(1) != ':') throw new IllegalArgumentException("Bad PBN deal: " + pbn);
+        Direction first = Direction.fromChar(s.charAt(0));
+        String[] hands = s.substring(2).trim().split("\\s+");
+        if (hands.length != 4) throw new IllegalArgumentException("A PBN deal needs four hands: " + pbn);
+        Deal deal = new Deal();
+        deal.setDealer(first);
+        long all = 0;
+        for (int i = 0; i < 4; i++) {
+            String[] suits = hands[i].split("\\.", -1);
+            if (suits.length != 4) throw new IllegalArgumentException("A PBN hand needs four suits: " + hands[i]);
+            long bits = 0;
+            for (int suit = 0; suit < 4; suit++) {
+                for (char c : suits[suit].toCharArray()) {
+                    bits |= 1L << (suit * 13 + Rank.fromChar(c).value());
+                }
+            }
+            if ((all & bits) != 0) throw new IllegalArgumentException("A card is dealt twice: " + pbn);
+            all |= bits;
+            deal.setHand(Direction.fromIndex((first.index() + i) & 3), new Hand(bits));
+        }
+        return deal;
+    }
+
+    /** The deal with only the lowest {@code cards} cards of each hand. */
+    private static Deal shorten(Deal deal, int cards) {
+        for (Direction dir : Direction.values()) {
+            long bits = deal.hand(dir).bits();
+            long kept = 0;
+            for (int i = 0; i < cards; i++) {
+                kept |= bits & -bits;
+                bits &= bits - 1;
+            }
+            deal.setHand(dir, new Hand(kept));
+        }
+        return deal;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + Json.quote(message) + "}";
+    }
+
+    /** Virtual threads where the runtime has them (Java 21), otherwise a cached pool of daemon threads. */
+    private static ExecutorService handlerExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "solver-http");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /** Request and latency counters; latencies go in power-of-two microsecond buckets. */
+    private static final class Counters {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder deals = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder latencyNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private volatile long startNanos = System.nanoTime();
+
+        void request(int dealCount, long nanos) {
+            requests.increment();
+            deals.add(dealCount);
+            latencyNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(Math.max(1, nanos / 1000)));
+        }
+
+        void reset() {
+            requests.reset();
+            deals.reset();
+            rejected.reset();
+            errors.reset();
+            latencyNanos.reset();
+            maxNanos.set(0);
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, 0);
+            }
+            startNanos = System.nanoTime();
+        }
+
+        String toJson(ThreadPoolExecutor workers) {
+            long n = requests.sum();
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+            return String.format(Locale.ROOT,
+                    "{\"uptimeSeconds\":%.1f,\"requests\":%d,\"deals\":%d,\"rejected\":%d,\"errors\":%d,"
+                            + "\"queued\":%d,\"busyWorkers\":%d,\"dealsPerSecond\":%.2f,"
+                            + "\"latencyMillis\":{\"mean\":%.3f,\"p50\":%.3f,\"p99\":%.3f,\"max\":%.3f}}",
+                    seconds, n, deals.sum(), rejected.sum(), errors.sum(), workers.getQueue().size(),
+                    workers.getActiveCount(), seconds > 0 ? deals.sum() / seconds : 0,
+                    n > 0 ? latencyNanos.sum() / 1e6 / n : 0, percentile(n, 0.50), percentile(n, 0.99),
+                    maxNanos.get() / 1e6);
+        }
+
+        /** Upper bound of the bucket holding the given fraction of the requests, in milliseconds. */
+        private double percentile(long n, double fraction) {
+            long seen = 0;
+            for (int b = 0; b < buckets.length(); b++) {
+                seen += buckets.get(b);
+                if (n > 0 && seen >= fraction * n) return Math.min((2L << b) / 1e3, maxNanos.get() / 1e6);
+            }
+            return 0;
+        }
+    }
+}
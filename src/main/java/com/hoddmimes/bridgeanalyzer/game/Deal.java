@@ -8,6 +8,7 @@ public class Deal {
     private int boardNumber;
     private Direction dealer;
     private String vulnerability;
+    private PlayRecord playRecord;
 
     public Deal() {
         for (int i = 0; i < 4; i++) {
@@ -30,6 +31,10 @@ public class Deal {
     public String vulnerability() { return vulnerability; }
     public void setVulnerability(String v) { this.vulnerability = v; }
 
+    /** The recorded auction and play, or null if none was recorded. */
+    public PlayRecord playRecord() { return playRecord; }
+    public void setPlayRecord(PlayRecord record) { this.playRecord = record; }
+
     public String displayHands() {
         StringBuilder sb = new StringBuilder();
         for (Direction dir : Direction.values()) {
@@ -2,7 +2,6 @@ package com.hoddmimes.bridgeanalyzer.game;
 
 import com.hoddmimes.bridgeanalyzer.model.Card;
 import com.hoddmimes.bridgeanalyzer.model.Direction;
-import com.hoddmimes.bridgeanalyzer.model.Suit;
 import com.hoddmimes.bridgeanalyzer.model.Trump;
 
 import java.util.ArrayList;
@@ -10,82 +9,122 @@ import java.util.List;
 
 public class GameState {
     private static final long SUIT_MASK = 0x1FFFL;
+    private static final int RANK_FIELD_BITS = 26;
 
     private final long[] hands = new long[4];
     private final int[] tricksWon = new int[2]; // 0=NS, 1=EW
     private final Trick currentTrick;
     private final Trump trump;
-    private Direction nextPlayer;
+    private int nextPlayer;
     private final int totalTricks;
 
-    // Pre-allocated undo stack to avoid per-call allocations
-    private final UndoSlot[] undoStack;
+    // Maintained incrementally by the play/undo methods, see shape(), rankOwners()
+    private long shape;
+    private final long[] rankOwners = new long[2];
+
+    // Pre-allocated undo stack of packed records, see undoRecord()
+    private final long[] undoStack;
     private int undoDepth;
 
     public GameState(Deal deal, Trump trump, Direction declarer) {
+        this.trump = trump;
+        this.currentTrick = new Trick(trump);
+        this.nextPlayer = declarer.next().index();
         for (Direction dir : Direction.values()) {
-            hands[dir.index()] = deal.hand(dir).bits();
+            for (long b = deal.hand(dir).bits(); b != 0; b &= b - 1) {
+                enterHand(dir.index(), Long.numberOfTrailingZeros(b));
+            }
         }
-        this.trump = trump;
-        this.currentTrick = new Trick();
-        this.nextPlayer = declarer.next();
         this.totalTricks = deal.hand(Direction.NORTH).cardCount();
 
         // Max depth = totalTricks * 4 cards per trick
-        this.undoStack = new UndoSlot[totalTricks * 4];
-        for (int i = 0; i < undoStack.length; i++) {
-            undoStack[i] = new UndoSlot();
-        }
+        this.undoStack = new long[totalTricks * 4];
+    }
+
+    /** An independent copy of the position, for searching it on another thread. */
+    public GameState(GameState other) {
+        this.trump = other.trump;
+        this.currentTrick = new Trick(other.currentTrick);
+        this.nextPlayer = other.nextPlayer;
+        this.totalTricks = other.totalTricks;
+        this.shape = other.shape;
+        System.arraycopy(other.hands, 0, hands, 0, 4);
+        System.arraycopy(other.tricksWon, 0, tricksWon, 0, 2);
+        System.arraycopy(other.rankOwners, 0, rankOwners, 0, 2);
+        this.undoStack = other.undoStack.clone();
+        this.undoDepth = other.undoDepth;
     }
 
     public Trump trump() { return trump; }
-    public Direction nextPlayer() { return nextPlayer; }
+    public Direction nextPlayer() { return Direction.fromIndex(nextPlayer); }
+    public int nextPlayerIndex() { return nextPlayer; }
+    public boolean nsToPlay() { return (nextPlayer & 1) == 0; }
     public int nsTricks() { return tricksWon[0]; }
     public int ewTricks() { return tricksWon[1]; }
     public int totalTricks() { return totalTricks; }
     public Trick currentTrick() { return currentTrick; }
 
+    /** Length of every suit in every hand, nibble (hand * 4 + suit). */
+    public long shape() { return shape; }
+
+    /**
+     * Relative-rank owners of the cards still in the hands, for suits
+     * 2*pair and 2*pair+1: per suit, 2 bits per card (N=0, E=1, S=2, W=3)
+     * from the highest card down, the second suit starting at bit 26.
+     * Cards on the table are left out.
+     */
+    public long rankOwners(int pair) { return rankOwners[pair]; }
+
     public boolean isTerminal() {
         return tricksWon[0] + tricksWon[1] == totalTricks;
     }
 
     public List<Card> legalMoves() {
-        Hand h = new Hand(hands[nextPlayer.index()]);
-        Suit ledSuit = currentTrick.count() > 0 ? currentTrick.ledSuit() : null;
-        return h.legalPlays(ledSuit);
+        Hand h = new Hand(hands[nextPlayer]);
+        return h.legalPlays(currentTrick.ledSuit());
+    }
+
+    /** Legal moves of the player to move, as a card mask. */
+    public long legalMoveMask() {
+        long myHand = hands[nextPlayer];
+        int ledSuit = currentTrick.ledSuitIndex();
+        if (ledSuit >= 0) {
+            long follow = myHand & (SUIT_MASK << (ledSuit * 13));
+            if (follow != 0) return follow;
+        }
+        return myHand;
     }
 
     /**
-     * Fill buffer with legal moves. Returns the number of moves written.
+     * Legal moves with equivalent cards pruned, as a card mask. Two cards
+     * in the same suit are equivalent if they are adjacent in the
+     * remaining-card ordering (no card between them exists in any hand or
+     * on the table); only the highest of each equivalence group is kept.
      */
-    public int fillLegalMoves(Card[] buffer) {
-        long myHand = hands[nextPlayer.index()];
-        Suit ledSuit = currentTrick.count() > 0 ? currentTrick.ledSuit() : null;
-
-        if (ledSuit != null) {
-            long suitBits = (myHand >> (ledSuit.index() * 13)) & SUIT_MASK;
-            if (suitBits != 0) {
-                // Must follow suit
-                int base = ledSuit.index() * 13;
-                int count = 0;
-                while (suitBits != 0) {
-                    int bit = Long.numberOfTrailingZeros(suitBits);
-                    buffer[count++] = Card.fromBitIndex(base + bit);
-                    suitBits &= suitBits - 1;
-                }
-                return count;
+    public long reducedMoveMask() {
+        long legal = legalMoveMask();
+        if ((legal & (legal - 1)) == 0) return legal;
+
+        long allRemaining = hands[0] | hands[1] | hands[2] | hands[3] | tableCards();
+        long myHand = hands[nextPlayer];
+
+        long reduced = 0;
+        for (long b = legal; b != 0; b &= b - 1) {
+            int card = Long.numberOfTrailingZeros(b);
+            long above = allRemaining & (SUIT_MASK << (card - card % 13)) & -(2L << card);
+            // Dropped if the next higher remaining card is also ours
+            if ((above & -above & myHand) == 0) {
+                reduced |= 1L << card;
             }
         }
+        return reduced;
+    }
 
-        // Play any card
-        int count = 0;
-        long b = myHand;
-        while (b != 0) {
-            int bit = Long.numberOfTrailingZeros(b);
-            buffer[count++] = Card.fromBitIndex(bit);
-            b &= b - 1;
-        }
-        return count;
+    /**
+     * Fill buffer with legal moves. Returns the number of moves written.
+     */
+    public int fillLegalMoves(Card[] buffer) {
+        return fill(buffer, legalMoveMask());
     }
 
     /**
@@ -93,125 +132,87 @@ public class GameState {
      * Returns the number of moves written.
      */
     public int fillLegalMovesReduced(Card[] buffer) {
-        int moveCount = fillLegalMoves(buffer);
-        if (moveCount <= 1) return moveCount;
-
-        long allRemaining = hands[0] | hands[1] | hands[2] | hands[3];
-        long myHand = hands[nextPlayer.index()];
-
-        int writeIdx = 0;
-        for (int i = 0; i < moveCount; i++) {
-            Card card = buffer[i];
-            int suitBase = card.suit().index() * 13;
-            int rank = card.rank().value();
-
-            boolean isEquivalentToHigher = false;
-            if (rank < 12) {
-                long suitRemaining = (allRemaining >> suitBase) & SUIT_MASK;
-                long mySuitCards = (myHand >> suitBase) & SUIT_MASK;
-
-                long aboveMask = suitRemaining >> (rank + 1);
-                if (aboveMask != 0) {
-                    int nextRemainingRank = rank + 1 + Long.numberOfTrailingZeros(aboveMask);
-                    if ((mySuitCards & (1L << nextRemainingRank)) != 0) {
-                        isEquivalentToHigher = true;
-                    }
-                }
-            }
-
-            if (!isEquivalentToHigher) {
-                buffer[writeIdx++] = card;
-            }
-        }
-        return writeIdx;
+        return fill(buffer, reducedMoveMask());
     }
 
-    /**
-     * Like legalMoves() but with equivalent cards pruned.
-     * Two cards in the same suit are equivalent if they are adjacent in the
-     * remaining-card ordering (no card between them exists in any hand).
-     * Only the highest of each equivalence group is returned.
-     */
+    /** Like legalMoves() but with equivalent cards pruned, see reducedMoveMask(). */
     public List<Card> legalMovesReduced() {
-        List<Card> moves = legalMoves();
-        if (moves.size() <= 1) return moves;
-
-        // Compute remaining cards across all hands for each suit
-        long allRemaining = hands[0] | hands[1] | hands[2] | hands[3];
-        long myHand = hands[nextPlayer.index()];
-
         List<Card> reduced = new ArrayList<>();
-        for (Card card : moves) {
-            int suitBase = card.suit().index() * 13;
-            int rank = card.rank().value();
-
-            // Check if there's a higher card in the same suit in our legal moves
-            // that is adjacent (no intervening remaining cards from other hands)
-            boolean isEquivalentToHigher = false;
-            if (rank < 12) {
-                long suitRemaining = (allRemaining >> suitBase) & SUIT_MASK;
-                long mySuitCards = (myHand >> suitBase) & SUIT_MASK;
-
-                // Check if the next higher remaining card is also in our hand
-                // Find the next set bit above 'rank' in suitRemaining
-                long aboveMask = suitRemaining >> (rank + 1);
-                if (aboveMask != 0) {
-                    int nextRemainingRank = rank + 1 + Long.numberOfTrailingZeros(aboveMask);
-                    // If that next remaining card is also in our hand, they're equivalent
-                    if ((mySuitCards & (1L << nextRemainingRank)) != 0) {
-                        isEquivalentToHigher = true;
-                    }
-                }
-            }
-
-            if (!isEquivalentToHigher) {
-                reduced.add(card);
-            }
+        for (long b = reducedMoveMask(); b != 0; b &= b - 1) {
+            reduced.add(Card.fromBitIndex(Long.numberOfTrailingZeros(b)));
         }
         return reduced;
     }
 
-    public record UndoInfo(Direction prevPlayer, boolean trickCompleted, Direction trickWinner,
-                           Card[] trickCards, Direction[] trickPlayers) {}
+    private static int fill(Card[] buffer, long moves) {
+        int count = 0;
+        for (long b = moves; b != 0; b &= b - 1) {
+            buffer[count++] = Card.fromBitIndex(Long.numberOfTrailingZeros(b));
+        }
+        return count;
+    }
+
+    private void leaveHand(int hand, int card) {
+        int suit = card / 13;
+        long word = rankOwners[suit >> 1];
+        int shift = (suit & 1) * RANK_FIELD_BITS;
+        long field = (word >>> shift) & ((1L << RANK_FIELD_BITS) - 1);
+        int pos = 2 * cardsAbove(card);
+        long below = field & ((1L << pos) - 1);
+        field = below | (field >>> (pos + 2)) << pos;
+        rankOwners[suit >> 1] = (word & ~(((1L << RANK_FIELD_BITS) - 1) << shift)) | field << shift;
+
+        hands[hand] &= ~(1L << card);
+        shape -= 1L << ((hand * 4 + suit) * 4);
+    }
+
+    private void enterHand(int hand, int card) {
+        int suit = card / 13;
+        long word = rankOwners[suit >> 1];
+        int shift = (suit & 1) * RANK_FIELD_BITS;
+        long field = (word >>> shift) & ((1L << RANK_FIELD_BITS) - 1);
+        int pos = 2 * cardsAbove(card);
+        long below = field & ((1L << pos) - 1);
+        field = below | (long) hand << pos | (field >>> pos) << (pos + 2);
+        rankOwners[suit >> 1] = (word & ~(((1L << RANK_FIELD_BITS) - 1) << shift)) | field << shift;
+
+        hands[hand] |= 1L << card;
+        shape += 1L << ((hand * 4 + suit) * 4);
+    }
 
-    /** Pre-allocated undo slot to avoid allocations in the hot path. */
-    static class UndoSlot {
-        Direction prevPlayer;
-        boolean trickCompleted;
-        Direction trickWinner;
-        final Card[] trickCards = new Card[4];
-        final Direction[] trickPlayers = new Direction[4];
+    /** Number of cards still in the hands that rank above the card in its suit. */
+    private int cardsAbove(int card) {
+        int suitBase = card - card % 13;
+        long suitCards = (remainingCards() >>> suitBase) & SUIT_MASK;
+        return Long.bitCount(suitCards >>> (card - suitBase + 1));
     }
 
+    /** Cards played to the current, unfinished trick. */
+    private long tableCards() {
+        return currentTrick.cardMask();
+    }
+
+    /** Undo handle returned by playCard(); wraps the packed record of playCardFast(). */
+    public record UndoInfo(long record) {}
+
+    // Undo record layout: bits 0-1 the player of the card, bit 2 set if the
+    // card completed a trick, bit 3 set if EW won it, bits 4-21 the first
+    // three cards of that trick (6 bits each).
+    private static final long UNDO_COMPLETED = 1L << 2;
+    private static final long UNDO_EW_WON = 1L << 3;
+    private static final int UNDO_CARDS_SHIFT = 4;
+
     /**
      * Play a card using the pre-allocated undo stack. Returns the undo depth
      * (to be passed to undoCardFast).
      */
     public int playCardFast(Card card) {
-        UndoSlot slot = undoStack[undoDepth];
-        slot.prevPlayer = nextPlayer;
-        hands[nextPlayer.index()] &= ~card.bitMask();
-        currentTrick.play(card, nextPlayer);
+        return playCardFast(card.bitIndex());
+    }
 
-        if (currentTrick.isComplete()) {
-            Direction winner = currentTrick.winner(trump);
-            slot.trickCompleted = true;
-            slot.trickWinner = winner;
-            for (int i = 0; i < 4; i++) {
-                slot.trickCards[i] = currentTrick.card(i);
-                slot.trickPlayers[i] = currentTrick.player(i);
-            }
-            if (winner.isNS()) {
-                tricksWon[0]++;
-            } else {
-                tricksWon[1]++;
-            }
-            currentTrick.reset();
-            nextPlayer = winner;
-        } else {
-            slot.trickCompleted = false;
-            nextPlayer = nextPlayer.next();
-        }
+    /** Like playCardFast(Card), for the card with the given bit index. */
+    public int playCardFast(int card) {
+        undoStack[undoDepth] = play(card);
         return undoDepth++;
     }
 
@@ -219,179 +220,97 @@ public class GameState {
      * Undo a card using the pre-allocated undo stack.
      */
     public void undoCardFast(Card card, int depth) {
+        undoCardFast(card.bitIndex(), depth);
+    }
+
+    /** Like undoCardFast(Card, int), for the card with the given bit index. */
+    public void undoCardFast(int card, int depth) {
         undoDepth = depth;
-        UndoSlot slot = undoStack[depth];
-        if (slot.trickCompleted) {
-            if (slot.trickWinner.isNS()) {
-                tricksWon[0]--;
-            } else {
-                tricksWon[1]--;
-            }
-            currentTrick.reset();
-            for (int i = 0; i < 3; i++) {
-                currentTrick.play(slot.trickCards[i], slot.trickPlayers[i]);
-            }
-        } else {
-            currentTrick.undoLast();
-        }
-        hands[slot.prevPlayer.index()] |= card.bitMask();
-        nextPlayer = slot.prevPlayer;
+        undo(card, undoStack[depth]);
     }
 
     public UndoInfo playCard(Card card) {
-        Direction prevPlayer = nextPlayer;
-        hands[nextPlayer.index()] &= ~card.bitMask();
+        return new UndoInfo(play(card.bitIndex()));
+    }
+
+    public void undoCard(Card card, UndoInfo undo) {
+        undo(card.bitIndex(), undo.record());
+    }
+
+    private long play(int card) {
+        long record = nextPlayer;
+        leaveHand(nextPlayer, card);
         currentTrick.play(card, nextPlayer);
 
         if (currentTrick.isComplete()) {
-            Direction winner = currentTrick.winner(trump);
-            Card[] tc = new Card[4];
-            Direction[] tp = new Direction[4];
-            for (int i = 0; i < 4; i++) {
-                tc[i] = currentTrick.card(i);
-                tp[i] = currentTrick.player(i);
+            int winner = currentTrick.winnerIndex();
+            record |= UNDO_COMPLETED;
+            for (int i = 0; i < 3; i++) {
+                record |= (long) currentTrick.cardAt(i) << (UNDO_CARDS_SHIFT + 6 * i);
             }
-            if (winner.isNS()) {
+            if ((winner & 1) == 0) {
                 tricksWon[0]++;
             } else {
                 tricksWon[1]++;
+                record |= UNDO_EW_WON;
             }
             currentTrick.reset();
             nextPlayer = winner;
-            return new UndoInfo(prevPlayer, true, winner, tc, tp);
         } else {
-            nextPlayer = nextPlayer.next();
-            return new UndoInfo(prevPlayer, false, null, null, null);
+            nextPlayer = (nextPlayer + 1) & 3;
         }
+        return record;
     }
 
-    public void undoCard(Card card, UndoInfo undo) {
-        if (undo.trickCompleted()) {
-            if (undo.trickWinner().isNS()) {
-                tricksWon[0]--;
-            } else {
-                tricksWon[1]--;
-            }
+    private void undo(int card, long record) {
+        int player = (int) record & 3;
+        if ((record & UNDO_COMPLETED) != 0) {
+            tricksWon[(record & UNDO_EW_WON) != 0 ? 1 : 0]--;
             currentTrick.reset();
             for (int i = 0; i < 3; i++) {
-                currentTrick.play(undo.trickCards()[i], undo.trickPlayers()[i]);
+                int c = (int) (record >>> (UNDO_CARDS_SHIFT + 6 * i)) & 0x3F;
+                currentTrick.play(c, (player + 1 + i) & 3);
             }
         } else {
             currentTrick.undoLast();
         }
-        hands[undo.prevPlayer().index()] |= card.bitMask();
-        nextPlayer = undo.prevPlayer();
+        enterHand(player, card);
+        nextPlayer = player;
     }
 
     public long handBits(Direction dir) {
         return hands[dir.index()];
     }
 
-    /**
-     * When exactly 1 trick remains and we're at a trick boundary,
-     * each player has exactly 1 card. Compute the result directly.
-     */
-    public int solveLastTrick() {
-        Direction leader = nextPlayer;
-        Card c0 = singleCard(hands[leader.index()]);
-        Direction p1 = leader.next();
-        Card c1 = singleCard(hands[p1.index()]);
-        Direction p2 = p1.next();
-        Card c2 = singleCard(hands[p2.index()]);
-        Direction p3 = p2.next();
-        Card c3 = singleCard(hands[p3.index()]);
-
-        Direction winner = Trick.computeWinner(c0, leader, c1, p1, c2, p2, c3, p3,
-                c0.suit(), trump);
-        return tricksWon[0] + (winner.isNS() ? 1 : 0);
+    /** Cards held by the player with the given index. */
+    public long handBits(int player) {
+        return hands[player];
     }
 
-    private static Card singleCard(long handBits) {
-        return Card.fromBitIndex(Long.numberOfTrailingZeros(handBits));
+    /** Cards still held by any hand. */
+    public long remainingCards() {
+        return hands[0] | hands[1] | hands[2] | hands[3];
     }
 
     /**
-     * Count quick tricks — guaranteed top-card winners for NS and EW.
-     * Returns [nsQuickTricks, ewQuickTricks].
-     * Only valid at trick boundaries (currentTrick.count() == 0).
+     * When exactly 1 trick remains and we're at a trick boundary,
+     * each player has exactly 1 card. Compute the result directly.
      */
-    public int countNSQuickTricks() {
-        int nsQuick = 0;
-        long nsCards = hands[Direction.NORTH.index()] | hands[Direction.SOUTH.index()];
-        long ewCards = hands[Direction.EAST.index()] | hands[Direction.WEST.index()];
-        long allCards = nsCards | ewCards;
-
-        // For each suit, count how many of the top remaining cards belong to NS
-        // Only count consecutive top winners (once EW has a higher card, stop)
-        for (Suit suit : Suit.values()) {
-            int base = suit.index() * 13;
-            long suitAll = (allCards >> base) & SUIT_MASK;
-            long suitNS = (nsCards >> base) & SUIT_MASK;
-
-            if (suitAll == 0) continue;
-
-            // For trump contracts, skip non-trump suit quick tricks if opponents have trump
-            if (trump.suit() != null && !trump.isTrump(suit)) {
-                Suit trumpSuit = trump.suit();
-                int trumpBase = trumpSuit.index() * 13;
-                long ewTrump = (ewCards >> trumpBase) & SUIT_MASK;
-                if (ewTrump != 0) {
-                    // EW can ruff, so no quick tricks in this side suit for NS
-                    continue;
-                }
-            }
-
-            // Count consecutive top cards belonging to NS
-            while (suitAll != 0) {
-                int topBit = 63 - Long.numberOfLeadingZeros(suitAll);
-                if ((suitNS & (1L << topBit)) != 0) {
-                    nsQuick++;
-                } else {
-                    break; // EW has a higher card
-                }
-                suitAll &= ~(1L << topBit);
-            }
-        }
-
-        return nsQuick;
+    public int solveLastTrick() {
+        int leader = nextPlayer;
+        int winIdx = Trick.computeWinner(singleCard(hands[leader]), singleCard(hands[(leader + 1) & 3]),
+                singleCard(hands[(leader + 2) & 3]), singleCard(hands[(leader + 3) & 3]), trump);
+        return tricksWon[0] + (((leader + winIdx) & 1) == 0 ? 1 : 0);
     }
 
-    /**
-     * Count quick tricks for EW.
-     */
-    public int countEWQuickTricks() {
-        int ewQuick = 0;
-        long nsCards = hands[Direction.NORTH.index()] | hands[Direction.SOUTH.index()];
-        long ewCards = hands[Direction.EAST.index()] | hands[Direction.WEST.index()];
-        long allCards = nsCards | ewCards;
-
-        for (Suit suit : Suit.values()) {
-            int base = suit.index() * 13;
-            long suitAll = (allCards >> base) & SUIT_MASK;
-            long suitEW = (ewCards >> base) & SUIT_MASK;
-
-            if (suitAll == 0) continue;
-
-            if (trump.suit() != null && !trump.isTrump(suit)) {
-                Suit trumpSuit = trump.suit();
-                int trumpBase = trumpSuit.index() * 13;
-                long nsTrump = (nsCards >> trumpBase) & SUIT_MASK;
-                if (nsTrump != 0) {
-                    continue;
-                }
-            }
-
-            while (suitAll != 0) {
-                int topBit = 63 - Long.numberOfLeadingZeros(suitAll);
-                if ((suitEW & (1L << topBit)) != 0) {
-                    ewQuick++;
-                } else {
-                    break;
-                }
-                suitAll &= ~(1L << topBit);
-            }
-        }
+    /** Bit index of the card that wins the last trick; same preconditions as solveLastTrick(). */
+    public int lastTrickWinningCard() {
+        int leader = nextPlayer;
+        return Trick.computeWinningCard(singleCard(hands[leader]), singleCard(hands[(leader + 1) & 3]),
+                singleCard(hands[(leader + 2) & 3]), singleCard(hands[(leader + 3) & 3]), trump);
+    }
 
-        return ewQuick;
+    private static int singleCard(long handBits) {
+        return Long.numberOfTrailingZeros(handBits);
     }
 }
@@ -0,0 +1,103 @@
+package com.hoddmimes.bridgeanalyzer.game;
+
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+import com.hoddmimes.bridgeanalyzer.model.Trump;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The auction and play of a board as recorded, e.g. by the LIN mb, pc and
+ * mc tags. Bids are kept as "P" (pass), "D" (double), "R" (redouble) or a
+ * level and strain such as "4S" or "3N"; cards as card bit indexes in the
+ * order they were played.
+ */
+public class PlayRecord {
+    private final List<String> bids = new ArrayList<>();
+    private int[] cards = new int[52];
+    private int cardCount;
+    private int claim = -1;
+
+    /** Add a bid; LIN spellings such as "p", "X", "XX", "1NT" and an alert mark '!' are accepted. */
+    public void addBid(String bid) {
+        String b = bid.trim().toUpperCase();
+        if (b.endsWith("!")) b = b.substring(0, b.length() - 1);
+        b = switch (b) {
+            case "PASS" -> "P";
+            case "X" -> "D";
+            case "XX" -> "R";
+            default -> b.endsWith("NT") ? b.substring(0, b.length() - 1) : b;
+        };
+        if (!b.equals("P") && !b.equals("D") && !b.equals("R")
+                && (b.length() != 2 || b.charAt(0) < '1' || b.charAt(0) > '7' || "CDHSN".indexOf(b.charAt(1)) < 0)) {
+            throw new IllegalArgumentException("Bad bid: " + bid);
+        }
+        bids.add(b);
+    }
+
+    public void addCard(int card) {
+        if (cardCount == cards.length) cards = Arrays.copyOf(cards, cardCount * 2);
+        cards[cardCount++] = card;
+    }
+
+    public List<String> bids() { return bids; }
+
+    /** Cards recorded as played. */
+    public int cardCount() { return cardCount; }
+
+    /** Bit index of the i-th card played. */
+    public int card(int i) { return cards[i]; }
+
+    /** Tricks the declarer claimed in all, or -1 if there was no claim. */
+    public int claim() { return claim; }
+    public void setClaim(int tricks) { this.claim = tricks; }
+
+    /** Level of the final contract, 0 if the auction was passed out or not recorded. */
+    public int level() {
+        int last = lastContractBid();
+        return last < 0 ? 0 : bids.get(last).charAt(0) - '0';
+    }
+
+    /** Strain of the final contract, or null if there is none. */
+    public Trump trump() {
+        int last = lastContractBid();
+        if (last < 0) return null;
+        char strain = bids.get(last).charAt(1);
+        return strain == 'N' ? Trump.NO_TRUMP : Trump.fromString(String.valueOf(strain));
+    }
+
+    /** 0 for an undoubled contract, 1 doubled, 2 redoubled. */
+    public int doubled() {
+        int last = lastContractBid();
+        int doubled = 0;
+        for (int i = last + 1; last >= 0 && i < bids.size(); i++) {
+            if (bids.get(i).equals("D")) doubled = 1;
+            if (bids.get(i).equals("R")) doubled = 2;
+        }
+        return doubled;
+    }
+
+    /**
+     * The declarer: the first player of the side that won the auction to
+     * bid its strain. The dealer makes the first bid. Null if there is no
+     * contract.
+     */
+    public Direction declarer(Direction dealer) {
+        int last = lastContractBid();
+        if (last < 0) return null;
+        char strain = bids.get(last).charAt(1);
+        int first = last % 2;
+        while (bids.get(first).length() != 2 || bids.get(first).charAt(1) != strain) {
+            first += 2;
+        }
+        return Direction.fromIndex((dealer.index() + first) & 3);
+    }
+
+    private int lastContractBid() {
+        for (int i = bids.size() - 1; i >= 0; i--) {
+            if (bids.get(i).length() == 2) return i;
+        }
+        return -1;
+    }
+}
@@ -5,98 +5,162 @@ import com.hoddmimes.bridgeanalyzer.model.Direction;
 import com.hoddmimes.bridgeanalyzer.model.Suit;
 import com.hoddmimes.bridgeanalyzer.model.Trump;
 
+/**
+ * The cards played to the current trick, kept as primitives: the card bit
+ * indexes packed 6 bits each into one int, the leader, the led suit and the
+ * index of the card currently winning, which play() updates from a
+ * precomputed strength table instead of re-scanning the trick.
+ */
 public class Trick {
-    private final Card[] cards = new Card[4];
-    private final Direction[] players = new Direction[4];
+    private static final int CARD_BITS = 6;
+    private static final int CARD_MASK = (1 << CARD_BITS) - 1;
+    private static final int NO_TRUMP_ROW = 4;
+
+    /**
+     * Card strength per trump row (suit index, 4 for NT), led suit and card:
+     * trumps 32 + rank, the led suit 16 + rank, other cards 0. A card beats
+     * the winning card exactly when it is stronger.
+     */
+    private static final byte[] STRENGTH = new byte[5 * 4 * 52];
+
+    static {
+        for (int trump = 0; trump <= NO_TRUMP_ROW; trump++) {
+            for (int led = 0; led < 4; led++) {
+                for (int card = 0; card < 52; card++) {
+                    int suit = card / 13;
+                    int strength = suit == trump ? 32 + card % 13 : suit == led ? 16 + card % 13 : 0;
+                    STRENGTH[(trump * 4 + led) * 52 + card] = (byte) strength;
+                }
+            }
+        }
+    }
+
+    private final int trumpRow;
+    private int cards;
     private int count;
-    private Suit ledSuit;
-    private int winIdx; // incrementally tracked winner index
+    private int leader;
+    private int ledSuit = -1;
+    private int winIdx;
+    private long cardMask;
+
+    public Trick() {
+        this(Trump.NO_TRUMP);
+    }
+
+    public Trick(Trump trump) {
+        this.trumpRow = trumpRow(trump);
+    }
+
+    /** A copy of the trick. */
+    public Trick(Trick other) {
+        this.trumpRow = other.trumpRow;
+        this.cards = other.cards;
+        this.count = other.count;
+        this.leader = other.leader;
+        this.ledSuit = other.ledSuit;
+        this.winIdx = other.winIdx;
+        this.cardMask = other.cardMask;
+    }
 
     public void play(Card card, Direction player) {
+        play(card.bitIndex(), player.index());
+    }
+
+    /** Play the card with the given bit index for the player with the given index. */
+    public void play(int card, int player) {
         if (count == 0) {
-            ledSuit = card.suit();
+            leader = player;
+            ledSuit = card / 13;
             winIdx = 0;
-        } else {
-            // we defer winner tracking to winner() for simplicity
-            // but track it here: check if this card beats current winner
+        } else if (strength(card) > strength(cardAt(winIdx))) {
+            winIdx = count;
         }
-        cards[count] = card;
-        players[count] = player;
+        cards |= card << (count * CARD_BITS);
+        cardMask |= 1L << card;
         count++;
     }
 
     public void undoLast() {
         count--;
+        int card = cardAt(count);
+        cards &= ~(CARD_MASK << (count * CARD_BITS));
+        cardMask &= ~(1L << card);
         if (count == 0) {
-            ledSuit = null;
+            ledSuit = -1;
+        } else if (winIdx == count) {
+            winIdx = 0;
+            for (int i = 1; i < count; i++) {
+                if (strength(cardAt(i)) > strength(cardAt(winIdx))) winIdx = i;
+            }
         }
     }
 
     public int count() { return count; }
     public boolean isComplete() { return count == 4; }
-    public Suit ledSuit() { return ledSuit; }
-    public Card card(int i) { return cards[i]; }
-    public Direction player(int i) { return players[i]; }
-
-    public Direction winner(Trump trump) {
-        int winIdx = 0;
-        for (int i = 1; i < count; i++) {
-            if (beats(cards[i], cards[winIdx], trump)) {
-                winIdx = i;
-            }
-        }
-        return players[winIdx];
+    public Suit ledSuit() { return ledSuit < 0 ? null : Suit.fromIndex(ledSuit); }
+    /** Index of the led suit, -1 before the lead. */
+    public int ledSuitIndex() { return ledSuit; }
+    public Card card(int i) { return Card.fromBitIndex(cardAt(i)); }
+    /** Bit index of the i-th card played. */
+    public int cardAt(int i) { return (cards >>> (i * CARD_BITS)) & CARD_MASK; }
+    public Direction player(int i) { return Direction.fromIndex(playerAt(i)); }
+    /** Index of the player of the i-th card. */
+    public int playerAt(int i) { return (leader + i) & 3; }
+    /** Cards on the table as a card mask. */
+    public long cardMask() { return cardMask; }
+
+    public Direction winner() { return Direction.fromIndex(winnerIndex()); }
+    /** Index of the player currently winning the trick. */
+    public int winnerIndex() { return playerAt(winIdx); }
+    public Card winningCard() { return Card.fromBitIndex(winningCardIndex()); }
+    public int winningCardIndex() { return cardAt(winIdx); }
+
+    /** True if the card would beat the card currently winning the trick. */
+    public boolean beatsWinner(int card) {
+        return strength(card) > strength(cardAt(winIdx));
     }
 
     /**
-     * Compute the winner of a full trick given 4 specific cards and players,
-     * without requiring them to be stored in this Trick object.
+     * Winning card bit index of a full trick given 4 card bit indexes in
+     * play order.
      */
-    public static Direction computeWinner(Card c0, Direction p0, Card c1, Direction p1,
-                                           Card c2, Direction p2, Card c3, Direction p3,
-                                           Suit ledSuit, Trump trump) {
-        Card winCard = c0;
-        Direction winPlayer = p0;
-        if (beatsStatic(c1, winCard, ledSuit, trump)) { winCard = c1; winPlayer = p1; }
-        if (beatsStatic(c2, winCard, ledSuit, trump)) { winCard = c2; winPlayer = p2; }
-        if (beatsStatic(c3, winCard, ledSuit, trump)) { winCard = c3; winPlayer = p3; }
-        return winPlayer;
+    public static int computeWinningCard(int c0, int c1, int c2, int c3, Trump trump) {
+        int row = (trumpRow(trump) * 4 + c0 / 13) * 52;
+        int win = c0;
+        if (STRENGTH[row + c1] > STRENGTH[row + win]) win = c1;
+        if (STRENGTH[row + c2] > STRENGTH[row + win]) win = c2;
+        if (STRENGTH[row + c3] > STRENGTH[row + win]) win = c3;
+        return win;
     }
 
-    private static boolean beatsStatic(Card challenger, Card current, Suit ledSuit, Trump trump) {
-        boolean challengerTrump = trump.isTrump(challenger.suit());
-        boolean currentTrump = trump.isTrump(current.suit());
-
-        if (challengerTrump != currentTrump) return challengerTrump;
-        if (challengerTrump) {
-            return challenger.rank().value() > current.rank().value();
-        }
-        if (challenger.suit() == current.suit()) {
-            return challenger.rank().value() > current.rank().value();
-        }
-        // Different non-trump suits: led suit wins
-        return challenger.suit() == ledSuit;
+    /** Position (0-3) in play order of the winning card of a full trick. */
+    public static int computeWinner(int c0, int c1, int c2, int c3, Trump trump) {
+        int row = (trumpRow(trump) * 4 + c0 / 13) * 52;
+        int idx = 0;
+        int best = STRENGTH[row + c0];
+        if (STRENGTH[row + c1] > best) { idx = 1; best = STRENGTH[row + c1]; }
+        if (STRENGTH[row + c2] > best) { idx = 2; best = STRENGTH[row + c2]; }
+        if (STRENGTH[row + c3] > best) { idx = 3; }
+        return idx;
     }
 
-    private boolean beats(Card challenger, Card current, Trump trump) {
-        boolean challengerTrump = trump.isTrump(challenger.suit());
-        boolean currentTrump = trump.isTrump(current.suit());
-
-        if (challengerTrump && !currentTrump) return true;
-        if (!challengerTrump && currentTrump) return false;
-        if (challengerTrump) {
-            return challenger.rank().value() > current.rank().value();
-        }
-        if (challenger.suit() == ledSuit && current.suit() != ledSuit) return true;
-        if (challenger.suit() != ledSuit && current.suit() == ledSuit) return false;
-        if (challenger.suit() == current.suit()) {
-            return challenger.rank().value() > current.rank().value();
-        }
-        return false;
+    public static boolean beatsStatic(Card challenger, Card current, Suit ledSuit, Trump trump) {
+        int row = (trumpRow(trump) * 4 + ledSuit.index()) * 52;
+        return STRENGTH[row + challenger.bitIndex()] > STRENGTH[row + current.bitIndex()];
     }
 
     public void reset() {
+        cards = 0;
+        cardMask = 0;
         count = 0;
-        ledSuit = null;
+        ledSuit = -1;
+    }
+
+    private int strength(int card) {
+        return STRENGTH[(trumpRow * 4 + ledSuit) * 52 + card];
+    }
+
+    private static int trumpRow(Trump trump) {
+        return trump.suitIndex() < 0 ? NO_TRUMP_ROW : trump.suitIndex();
     }
 }
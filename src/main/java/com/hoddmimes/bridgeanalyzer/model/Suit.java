@@ -6,6 +6,8 @@ public enum Suit {
     DIAMONDS(2, 'D'),
     CLUBS(3, 'C');
 
+    private static final Suit[] VALS = values();
+
     private final int index;
     private final char ch;
 
@@ -28,6 +30,6 @@ public enum Suit {
     }
 
     public static Suit fromIndex(int index) {
-        return values()[index];
+        return VALS[index];
     }
 }
@@ -17,6 +17,9 @@ public enum Trump {
 
     public Suit suit() { return suit; }
 
+    /** Index of the trump suit, -1 for NT. */
+    public int suitIndex() { return trumpSuitIndex; }
+
     public boolean isTrump(Suit s) {
         return s.index() == trumpSuitIndex;
     }
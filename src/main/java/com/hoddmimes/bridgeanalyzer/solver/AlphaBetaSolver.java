@@ -2,166 +2,749 @@ package com.hoddmimes.bridgeanalyzer.solver;
 
 import com.hoddmimes.bridgeanalyzer.game.Deal;
 import com.hoddmimes.bridgeanalyzer.game.GameState;
-import com.hoddmimes.bridgeanalyzer.model.Card;
 import com.hoddmimes.bridgeanalyzer.model.Direction;
-import com.hoddmimes.bridgeanalyzer.model.Suit;
 import com.hoddmimes.bridgeanalyzer.model.Trump;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Double-dummy solver by alpha-beta search over a transposition table. An
+ * instance keeps its table, move buffers and counters between calls and is
+ * not thread-safe: use one per thread, or share them through a
+ * {@link SolverPool}. A solve whose thread is interrupted stops within a
+ * few thousand nodes by throwing a CancellationException.
+ */
 public class AlphaBetaSolver implements Solver {
 
-    // Pre-allocated move buffers per recursion depth (max 52 cards = 13 tricks * 4)
-    private final Card[][] moveBuffers = new Card[52][13];
-    private final TranspositionTable tt = new TranspositionTable();
+    // Top cards per suit hashed when partition search is on
+    private static final int PARTITION_BUCKET_TOP = 4;
+    // Nodes between checks whether the search was interrupted or a split search cut off
+    private static final int ABORT_CHECK_MASK = 0x3FF;
+    private static final SearchAborted ABORTED = new SearchAborted();
+    // Search pools by thread count, shared by all solvers; their workers are daemons that exit when idle
+    private static final ConcurrentHashMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+    private final TranspositionTable tt;
+    // Cards per suit that decide the TT bucket, see PartitionKey.hash()
+    private final int bucketTop;
+    // Searches the root moves after the first one in parallel, null for a single thread
+    private final ForkJoinPool pool;
+    private final SearchDriver driver;
+    // Where within a trick the searches probe the TT, shared by all of them
+    private final ProbePolicy probePolicy = new ProbePolicy();
+    private final Search search = new Search(null);
+    // Nodes of the finished split searches, see nodes()
+    private final AtomicLong splitNodes = new AtomicLong();
+    private SolverStats lastStats = new SolverStats();
+    // Value returned by the last zero-window probe, see atLeast()
+    private int probed;
+
+    public AlphaBetaSolver() {
+        this(TranspositionTable.DEFAULT_SIZE_MB);
+    }
+
+    public AlphaBetaSolver(int ttSizeMb) {
+        this(ttSizeMb, false);
+    }
+
+    /**
+     * @param partitionSearch store partition classes that keep only the
+     *        relevant top cards of each suit; otherwise every entry keeps the
+     *        full relative-rank position. Classes cover more positions but
+     *        share buckets, which with the current move ordering costs more
+     *        nodes than it saves on full deals, so it is off by default.
+     */
+    public AlphaBetaSolver(int ttSizeMb, boolean partitionSearch) {
+        this(ttSizeMb, partitionSearch, 1);
+    }
+
+    /**
+     * @param threads threads searching a single deal. With more than one,
+     *        the first root move is searched on the calling thread and the
+     *        others in parallel on a pool, all sharing the transposition
+     *        table; a cutoff by one of them stops the rest. Solvers with the
+     *        same number of threads share one pool. The results do not
+     *        depend on the number of threads.
+     */
+    public AlphaBetaSolver(int ttSizeMb, boolean partitionSearch, int threads) {
+        this(ttSizeMb, partitionSearch, threads, SearchDriver.FULL_WINDOW);
+    }
+
+    /** @param driver how the searches of one solve are windowed */
+    public AlphaBetaSolver(int ttSizeMb, boolean partitionSearch, int threads, SearchDriver driver) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Search threads must be positive: " + threads);
+        }
+        this.tt = new TranspositionTable(ttSizeMb);
+        this.bucketTop = partitionSearch ? PARTITION_BUCKET_TOP : 13;
+        this.pool = threads > 1 ? POOLS.computeIfAbsent(threads, ForkJoinPool::new) : null;
+        this.driver = driver;
+    }
+
+    /** Positions searched by this solver so far, on all threads. */
+    public long nodes() {
+        return search.nodes + splitNodes.get();
+    }
+
+    /** Counters of the last solve() or solveTable() call; a table adds up its cells. */
+    @Override
+    public SolverStats lastStats() {
+        return lastStats;
+    }
 
     @Override
     public int solve(Deal deal, Trump trump, Direction declarer) {
         GameState state = new GameState(deal, trump, declarer);
         tt.clear();
-        return alphaBeta(state, 0, state.totalTricks(), 0);
+        search.orderer.reset();
+        int nsTricks = solveCell(state, declarer, -1);
+        lastStats = search.stats.copy();
+        return nsTricks;
     }
 
-    private long stateKey(GameState state) {
-        long h = state.handBits(Direction.NORTH);
-        h = h * 0x9E3779B97F4A7C15L + state.handBits(Direction.EAST);
-        h = h * 0x9E3779B97F4A7C15L + state.handBits(Direction.SOUTH);
-        h = h * 0x9E3779B97F4A7C15L + state.handBits(Direction.WEST);
-        h = h * 31 + state.nextPlayer().index();
-        h = h * 31 + state.currentTrick().count();
-        return h;
+    /**
+     * Solves the strains one at a time. The declarers of a strain share the
+     * transposition table (entries record the player on lead), and each
+     * cell after the first is searched around the previous cell's result.
+     */
+    @Override
+    public DDTable solveTable(Deal deal) {
+        DDTable table = new DDTable();
+        SolverStats total = new SolverStats();
+        for (Trump trump : Trump.values()) {
+            tt.clear();
+            search.orderer.reset();
+            int guess = -1;
+            for (Direction declarer : Direction.values()) {
+                GameState state = new GameState(deal, trump, declarer);
+                int nsTricks = solveCell(state, declarer, guess);
+                total.add(search.stats);
+                table.set(trump, declarer, declarer.isNS() ? nsTricks : state.totalTricks() - nsTricks);
+                guess = nsTricks;
+            }
+        }
+        lastStats = total;
+        return table;
     }
 
-    private int moveScore(Card card, Suit ledSuit, Trump trump) {
-        int score = card.rank().value();
-        if (trump.isTrump(card.suit())) {
-            score += 26;
-        } else if (ledSuit != null && card.suit() == ledSuit) {
-            score += 13;
+    /**
+     * NS tricks after each legal card of the player to move, by card bit
+     * index, -1 for the cards that cannot be played. The sibling searches
+     * share the transposition table: the first card is searched from an
+     * estimate, and every other one by zero-window tests starting at the
+     * best value found so far, so the cards that tie with it or fall a
+     * trick short cost one or two tests. With more than one search thread
+     * the cards after the first are searched in parallel.
+     */
+    @Override
+    public int[] solveAllMoves(GameState position) {
+        GameState state = new GameState(position);
+        tt.clear();
+        search.orderer.reset();
+        SolverStats stats = search.stats;
+        stats.reset();
+        long start = System.nanoTime();
+
+        int[] values = new int[52];
+        Arrays.fill(values, -1);
+        boolean nsToPlay = state.nsToPlay();
+        long reduced = state.reducedMoveMask();
+        int[] moves = new int[13];
+        int moveCount = search.orderer.order(state, reduced, moves, 0, -1);
+        int best = estimate(state);
+        for (int i = 0; i < moveCount; i++) {
+            if (i == 1 && pool != null) {
+                solveSiblings(state, moves, moveCount, best, values);
+                break;
+            }
+            int card = moves[i] & 0x3F;
+            int undo = state.playCardFast(card);
+            int v = mtdf(search, state, best, 1);
+            state.undoCardFast(card, undo);
+            values[card] = v;
+            best = i == 0 ? v : nsToPlay ? Math.max(best, v) : Math.min(best, v);
         }
-        return score;
+
+        // Cards left out as equal to the next higher card of the hand take its value
+        long all = state.remainingCards() | state.currentTrick().cardMask();
+        for (long skipped = state.legalMoveMask() & ~reduced; skipped != 0; ) {
+            int card = 63 - Long.numberOfLeadingZeros(skipped);
+            skipped &= ~(1L << card);
+            long above = all & (0x1FFFL << (card - card % 13)) & -(2L << card);
+            values[card] = values[Long.numberOfTrailingZeros(above)];
+        }
+        stats.elapsedNanos = System.nanoTime() - start;
+        lastStats = stats.copy();
+        return values;
     }
 
-    private void orderMoves(Card[] moves, int count, GameState state) {
-        if (count <= 1) return;
+    /**
+     * The moves after the first in parallel, each on a copy of the position
+     * with its own Search. Interrupting the calling thread stops them all;
+     * the call returns only once none is running.
+     */
+    private void solveSiblings(GameState state, int[] moves, int moveCount, int guess, int[] values) {
+        Fork fork = new Fork();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(moveCount - 1);
+        for (int i = 1; i < moveCount; i++) {
+            GameState copy = new GameState(state);
+            int card = moves[i] & 0x3F;
+            tasks.add(pool.submit(() -> {
+                Search sibling = new Search(fork);
+                copy.playCardFast(card);
+                values[card] = mtdf(sibling, copy, guess, 1);
+                splitNodes.addAndGet(sibling.nodes);
+                synchronized (this) {
+                    search.stats.add(sibling.stats);
+                }
+            }));
+        }
+        fork.joinAll(tasks);
+    }
 
-        boolean nsToPlay = state.nextPlayer().isNS();
-        Trump trump = state.trump();
-        Suit ledSuit = state.currentTrick().count() > 0 ? state.currentTrick().ledSuit() : null;
+    /** Empty the transposition table and reset the counters, before {@link #solvePosition} calls. */
+    void clearTable() {
+        tt.clear();
+        search.orderer.reset();
+        search.stats.reset();
+    }
 
-        // Simple insertion sort (small arrays, avoids allocation)
-        for (int i = 1; i < count; i++) {
-            Card key = moves[i];
-            int keyScore = moveScore(key, ledSuit, trump);
-            int j = i - 1;
-            while (j >= 0) {
-                int cmpScore = moveScore(moves[j], ledSuit, trump);
-                boolean shouldSwap = nsToPlay ? cmpScore < keyScore : cmpScore > keyScore;
-                if (!shouldSwap) break;
-                moves[j + 1] = moves[j];
-                j--;
-            }
-            moves[j + 1] = key;
-        }
+    /**
+     * NS tricks of the position by zero-window tests from the guess, keeping
+     * the transposition table of earlier positions of the same deal and
+     * strain; see {@link #clearTable}. The counters add up over the calls.
+     */
+    int solvePosition(GameState state, int guess) {
+        long start = System.nanoTime();
+        int nsTricks = mtdf(search, state, guess >= 0 ? guess : estimate(state), 0);
+        search.stats.elapsedNanos += System.nanoTime() - start;
+        lastStats = search.stats.copy();
+        return nsTricks;
     }
 
-    private int alphaBeta(GameState state, int alpha, int beta, int depth) {
-        if (state.isTerminal()) {
-            return state.nsTricks();
+    /**
+     * {@link #solveFrom} with the search counters of the cell collected in
+     * the caller's Search, and a flight-recorder event when one is recording.
+     */
+    private int solveCell(GameState state, Direction declarer, int guess) {
+        SolveEvent event = new SolveEvent();
+        event.begin();
+        SolverStats stats = search.stats;
+        stats.reset();
+        long start = System.nanoTime();
+        int nsTricks = solveFrom(state, guess);
+        stats.elapsedNanos = System.nanoTime() - start;
+        event.end();
+        if (event.shouldCommit()) {
+            event.trump = state.trump().label();
+            event.declarer = declarer.name();
+            event.nsTricks = nsTricks;
+            event.nodes = stats.nodes();
+            event.ttProbes = stats.ttProbes;
+            event.ttHits = stats.ttHits;
+            event.boundCutoffs = stats.boundCutoffs;
+            event.cutoffs = stats.cutoffs();
+            event.firstMoveCutoffs = stats.cutoffsByMove[0];
+            event.commit();
         }
+        return nsTricks;
+    }
+
+    /**
+     * NS tricks of the position by the configured driver. The guess (-1 for
+     * none) is a likely result, such as a neighbouring cell of the table.
+     * The transposition table keeps the bounds found by one search for the
+     * next, so repeated searches of the same position are cheap.
+     */
+    private int solveFrom(GameState state, int guess) {
+        return switch (driver) {
+            case FULL_WINDOW -> solveAround(state, guess);
+            case MTDF -> mtdf(search, state, guess >= 0 ? guess : estimate(state), 0);
+            case BINARY -> bisect(state);
+        };
+    }
 
-        int tricksPlayed = state.nsTricks() + state.ewTricks();
-        int tricksRemaining = state.totalTricks() - tricksPlayed;
+    /**
+     * Zero-window probe: true if NS take at least {@code target} tricks. The
+     * returned bound of the search is left in {@link #probed}.
+     */
+    private boolean atLeast(GameState state, int target) {
+        probed = search.alphaBeta(state, target - 1, target, 0);
+        return probed >= target;
+    }
 
-        if (state.nsTricks() + tricksRemaining <= alpha) {
-            return alpha;
+    /**
+     * MTD(f): zero-window tests stepping from the guess towards the value,
+     * each test's bound possibly skipping several steps.
+     *
+     * @param depth recursion depth of the position, for the move buffers
+     */
+    private static int mtdf(Search search, GameState state, int guess, int depth) {
+        int lo = 0, hi = state.totalTricks();
+        int g = Math.max(lo, Math.min(hi, guess));
+        while (lo < hi) {
+            int target = Math.max(g, lo + 1);
+            int v = search.alphaBeta(state, target - 1, target, depth);
+            if (v >= target) {
+                lo = Math.min(hi, v);
+                g = lo;
+            } else {
+                hi = Math.max(lo, v);
+                g = hi;
+            }
         }
-        if (state.nsTricks() >= beta) {
-            return beta;
+        return lo;
+    }
+
+    private int bisect(GameState state) {
+        int lo = 0, hi = state.totalTricks();
+        while (lo < hi) {
+            int target = (lo + hi + 1) >>> 1;
+            if (atLeast(state, target)) {
+                lo = Math.min(hi, Math.max(target, probed));
+            } else {
+                hi = Math.max(lo, Math.min(target - 1, probed));
+            }
         }
+        return lo;
+    }
 
-        boolean atTrickBoundary = state.currentTrick().count() == 0;
+    /**
+     * Cheap first guess for MTD(f): the tricks NS would take if tricks went
+     * with high-card points (A=4, K=3, Q=2, J=1), rounded.
+     */
+    private static int estimate(GameState state) {
+        int ns = hcp(state.handBits(Direction.NORTH) | state.handBits(Direction.SOUTH));
+        int all = hcp(state.remainingCards());
+        if (all == 0) return state.totalTricks() / 2;
+        return (2 * ns * state.totalTricks() + all) / (2 * all);
+    }
 
-        // Last trick optimization: compute directly without recursion
-        if (atTrickBoundary && tricksRemaining == 1) {
-            return state.solveLastTrick();
+    private static int hcp(long cards) {
+        int points = 0;
+        for (int suit = 0; suit < 4; suit++) {
+            long honours = (cards >>> (suit * 13 + 9)) & 0xF; // J Q K A
+            points += Long.bitCount(honours & 1) + 2 * Long.bitCount(honours & 2)
+                    + 3 * Long.bitCount(honours & 4) + 4 * Long.bitCount(honours & 8);
         }
+        return points;
+    }
 
-        // Quick tricks tightening — only for the side that has the lead
-        if (atTrickBoundary && tricksRemaining >= 3) {
-            boolean nsLeads = state.nextPlayer().isNS();
-            if (nsLeads) {
-                int nsQuick = Math.min(state.countNSQuickTricks(), tricksRemaining);
-                int nsFloor = state.nsTricks() + nsQuick;
-                if (nsFloor >= beta) return nsFloor;
-                alpha = Math.max(alpha, nsFloor);
+    /**
+     * NS tricks of the position, first testing the window around the guess
+     * (-1 for none) and then searching whatever range it leaves open.
+     */
+    private int solveAround(GameState state, int guess) {
+        int lo = 0, hi = state.totalTricks();
+        if (guess >= 0) {
+            int alpha = Math.max(lo, guess - 1), beta = Math.min(hi, guess + 1);
+            int v = search.alphaBeta(state, alpha, beta, 0);
+            if (v > alpha && v < beta) return v;
+            if (v <= alpha) {
+                hi = Math.max(lo, v);
             } else {
-                int ewQuick = Math.min(state.countEWQuickTricks(), tricksRemaining);
-                int nsCeiling = state.nsTricks() + tricksRemaining - ewQuick;
-                if (nsCeiling <= alpha) return nsCeiling;
-                beta = Math.min(beta, nsCeiling);
+                lo = Math.min(hi, v);
             }
+            if (lo == hi) return lo;
         }
+        int v = search.alphaBeta(state, lo, hi, 0);
+        return Math.max(lo, Math.min(hi, v));
+    }
 
-        // Transposition table lookup (only at trick boundaries for cleaner semantics)
-        long key = 0;
-        boolean useTT = atTrickBoundary;
-        if (useTT) {
-            key = stateKey(state);
-            int slot = tt.lookup(key);
-            if (slot >= 0) {
-                int lower = tt.lower(slot), upper = tt.upper(slot);
-                if (lower >= beta) return lower;
-                if (upper <= alpha) return upper;
-                alpha = Math.max(alpha, lower);
-                beta = Math.min(beta, upper);
-            }
+    /** Cards of the completed trick that decided it: the winner, if it beat a card of its own suit. */
+    private static long rankWinner(int winner, long trickCards) {
+        long suitCards = (trickCards >>> (winner - winner % 13)) & 0x1FFFL;
+        return Long.bitCount(suitCards) > 1 ? 1L << winner : 0;
+    }
+
+    /** Search state of one thread: move buffers and ordering, node count and the relevant-cards result. */
+    private final class Search {
+        // Pre-allocated move buffers per recursion depth (max 52 cards = 13 tricks * 4), see MoveOrderer.order()
+        private final int[][] moveBuffers = new int[52][13];
+        private final MoveOrderer orderer = new MoveOrderer();
+        private final TrickBounds bounds = new TrickBounds();
+        private final SolverStats stats = new SolverStats();
+        // The parallel searches this one is a part of, polled for a stop; null on the caller's thread
+        private final Fork fork;
+        private long nodes;
+        // Cards the last alphaBeta() result depended on, see alphaBeta()
+        private long relevant;
+
+        Search(Fork fork) {
+            this.fork = fork;
         }
 
-        int origAlpha = alpha;
-        int origBeta = beta;
+        /**
+         * Alpha-beta search returning the NS trick total. On return,
+         * {@link #relevant} holds the cards whose ranks the result depended on
+         * (partition search): any position that agrees with this one on those
+         * cards and on suit lengths has the same value.
+         */
+        private int alphaBeta(GameState state, int alpha, int beta, int depth) {
+            nodes++;
+            relevant = 0;
+            if ((nodes & ABORT_CHECK_MASK) == 0) {
+                if (fork != null) {
+                    if (fork.stopped()) throw ABORTED;
+                } else if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("Solve interrupted");
+                }
+            }
+            int tricksPlayed = state.nsTricks() + state.ewTricks();
+            if (state.isTerminal()) {
+                stats.nodesByTrick[tricksPlayed - 1]++;
+                return state.nsTricks();
+            }
+            stats.nodesByTrick[tricksPlayed]++;
+
+            int tricksRemaining = state.totalTricks() - tricksPlayed;
+
+            if (state.nsTricks() + tricksRemaining <= alpha) {
+                return alpha;
+            }
+            if (state.nsTricks() >= beta) {
+                return beta;
+            }
+
+            boolean atTrickBoundary = state.currentTrick().count() == 0;
+
+            // Last trick optimization: compute directly without recursion
+            if (atTrickBoundary && tricksRemaining == 1) {
+                relevant = rankWinner(state.lastTrickWinningCard(), state.remainingCards());
+                return state.solveLastTrick();
+            }
+
+            long rel = 0;
+
+            // Bounds from sure tricks, for both sides. floor and ceiling are what
+            // the search already knows about the NS total, with their cards in rel.
+            int floor = state.nsTricks(), ceiling = floor + tricksRemaining;
+            if (atTrickBoundary && tricksRemaining >= 2) {
+                bounds.compute(state);
+                long floorCards, ceilingCards;
+                if (state.nsToPlay()) {
+                    floor += bounds.leadMin;
+                    ceiling -= tricksRemaining - bounds.leadMax;
+                    floorCards = bounds.leadMinCards;
+                    ceilingCards = bounds.leadMaxCards;
+                } else {
+                    floor += tricksRemaining - bounds.leadMax;
+                    ceiling -= bounds.leadMin;
+                    floorCards = bounds.leadMaxCards;
+                    ceilingCards = bounds.leadMinCards;
+                }
+                if (floor >= beta) {
+                    stats.boundCutoffs++;
+                    relevant = floorCards;
+                    return floor;
+                }
+                if (ceiling <= alpha) {
+                    stats.boundCutoffs++;
+                    relevant = ceilingCards;
+                    return ceiling;
+                }
+                if (floor > alpha) {
+                    alpha = floor;
+                    rel |= floorCards;
+                } else {
+                    floor = state.nsTricks();
+                }
+                if (ceiling < beta) {
+                    beta = ceiling;
+                    rel |= ceilingCards;
+                } else {
+                    ceiling = state.nsTricks() + tricksRemaining;
+                }
+            }
+
+            // Transposition table lookup: always at trick boundaries, within a trick
+            // where the policy finds it pays off. Entries hold bounds on the NS tricks
+            // still to be won, so shift by the tricks NS already has on the way in and out.
+            int won = state.nsTricks();
+            long hash = 0, shape = 0, owners0 = 0, owners1 = 0, remaining = 0;
+            int hint = -1, trick = 0;
+            int count = state.currentTrick().count();
+            boolean useTT = probePolicy.probe(count, tricksRemaining);
+            if (useTT) {
+                remaining = state.remainingCards();
+                trick = PartitionKey.trickKey(state.currentTrick(), remaining);
+                shape = state.shape();
+                owners0 = PartitionKey.withLeader(state.rankOwners(0), state.nextPlayerIndex());
+                owners1 = state.rankOwners(1);
+                hash = PartitionKey.hash(shape, trick, owners0, owners1, bucketTop);
+                long entry = tt.lookup(hash, shape, trick, owners0, owners1);
+                stats.ttProbes++;
+                if (count > 0) {
+                    int lower = TranspositionTable.lower(entry), upper = TranspositionTable.upper(entry);
+                    boolean cut = entry != 0 && (won + lower >= beta || won + upper <= alpha || lower == upper);
+                    probePolicy.record(count, tricksRemaining, cut ? TranspositionTable.nodes(entry) : 0);
+                }
+                if (entry != 0) {
+                    stats.ttHits++;
+                    int move = TranspositionTable.move(entry);
+                    if (move != TranspositionTable.NO_MOVE) hint = PartitionKey.decodeMove(move, remaining);
+                    int lower = won + TranspositionTable.lower(entry), upper = won + TranspositionTable.upper(entry);
+                    long kept = PartitionKey.keptCards(TranspositionTable.kept(entry), remaining);
+                    if (lower >= beta) {
+                        stats.ttCutoffs++;
+                        relevant = kept;
+                        return lower;
+                    }
+                    if (upper <= alpha || lower == upper) {
+                        // An exact entry inside the window must not collapse it to alpha == beta:
+                        // the move loop would stop after one move and misreport the bound.
+                        stats.ttCutoffs++;
+                        relevant = kept;
+                        return upper;
+                    }
+                    if (lower > alpha || upper < beta) {
+                        alpha = Math.max(alpha, lower);
+                        beta = Math.min(beta, upper);
+                        floor = Math.max(floor, lower);
+                        ceiling = Math.min(ceiling, upper);
+                        rel |= kept;
+                    }
+                }
+            }
+
+            int origAlpha = alpha;
+            int origBeta = beta;
+            long nodesBefore = nodes;
 
-        Card[] moves = moveBuffers[depth];
-        int moveCount = state.fillLegalMovesReduced(moves);
-        orderMoves(moves, moveCount, state);
-        boolean nsToPlay = state.nextPlayer().isNS();
+            long reducedMoves = state.reducedMoveMask();
+            int[] moves = moveBuffers[depth];
+            int moveCount = orderer.order(state, reducedMoves, moves, depth, hint);
+            boolean nsToPlay = state.nsToPlay();
 
-        int value;
-        if (nsToPlay) {
-            value = 0;
-            for (int i = 0; i < moveCount; i++) {
-                Card card = moves[i];
+            // Cards skipped as equal to a higher card of the same hand only stay
+            // equal if no small card can come between them: keep them relevant.
+            rel |= state.legalMoveMask() & ~reducedMoves;
+
+            // Cards already on the table when this move completes the trick
+            boolean completesTrick = state.currentTrick().count() == 3;
+            long tableCards = 0;
+            int tableWinner = 0;
+            if (completesTrick) {
+                tableCards = state.currentTrick().cardMask();
+                tableWinner = state.currentTrick().winningCardIndex();
+            }
+
+            // A cutoff only depends on the refuting move; otherwise every move counted
+            long searched = 0;
+            int value = nsToPlay ? 0 : state.totalTricks();
+            int best = -1;
+            int first = 0;
+            if (depth == 0 && pool != null && atTrickBoundary && moveCount > 1) {
+                // Eldest brother here, the others in parallel within its bound
+                int card = moves[0] & 0x3F;
                 int undo = state.playCardFast(card);
-                value = Math.max(value, alphaBeta(state, alpha, beta, depth + 1));
+                value = alphaBeta(state, alpha, beta, depth + 1);
                 state.undoCardFast(card, undo);
-                alpha = Math.max(alpha, value);
-                if (alpha >= beta) break;
+                // The led card is the winner in its child's trick key
+                relevant |= 1L << card;
+                if (nsToPlay ? value < beta : value > alpha) {
+                    RootSplit split = new RootSplit(nsToPlay, value, alpha, beta, relevant);
+                    split.run(state, moves, moveCount);
+                    value = split.value;
+                    relevant = split.relevant;
+                }
+                searched = relevant;
+                first = moveCount;
             }
-        } else {
-            value = state.totalTricks();
-            for (int i = 0; i < moveCount; i++) {
-                Card card = moves[i];
+            for (int i = first; i < moveCount; i++) {
+                int card = moves[i] & 0x3F;
                 int undo = state.playCardFast(card);
-                value = Math.min(value, alphaBeta(state, alpha, beta, depth + 1));
+                int v = alphaBeta(state, alpha, beta, depth + 1);
                 state.undoCardFast(card, undo);
-                beta = Math.min(beta, value);
-                if (alpha >= beta) break;
+                long childRel = relevant;
+                if (completesTrick) {
+                    int winner = state.currentTrick().beatsWinner(card) ? card : tableWinner;
+                    childRel |= rankWinner(winner, tableCards | 1L << card);
+                } else if (atTrickBoundary || state.currentTrick().beatsWinner(card)) {
+                    // The child's trick key holds the rank of its winning card
+                    childRel |= 1L << card;
+                }
+                if (nsToPlay ? v > value : v < value) {
+                    value = v;
+                    best = card;
+                }
+                if (nsToPlay) {
+                    alpha = Math.max(alpha, value);
+                } else {
+                    beta = Math.min(beta, value);
+                }
+                if (alpha >= beta) {
+                    stats.cutoffsByMove[i]++;
+                    orderer.cutoff(state.nextPlayerIndex(), card, depth, tricksRemaining);
+                    searched = childRel;
+                    break;
+                }
+                searched |= childRel;
             }
+            rel |= searched;
+            // Children that failed against a narrowed window can return less
+            // (or more) than what is already known
+            value = Math.max(floor, Math.min(ceiling, value));
+
+            // Store in transposition table
+            if (useTT) {
+                if (trick != 0) {
+                    rel |= PartitionKey.beatingCards(state.currentTrick().winningCardIndex(), remaining);
+                }
+                long lock0 = PartitionKey.keepRelevant(owners0, remaining, rel, 0, bucketTop);
+                long lock1 = PartitionKey.keepRelevant(owners1, remaining, rel, 1, bucketTop);
+                int toWin = value - won;
+                int lower = value <= origAlpha ? floor - won : toWin;
+                int upper = value >= origBeta ? ceiling - won : toWin;
+                // A best move is only known if some move reached into the window
+                boolean improved = nsToPlay ? value > origAlpha : value < origBeta;
+                int move = improved && best >= 0 ? PartitionKey.encodeMove(best, remaining) : TranspositionTable.NO_MOVE;
+                int stored = tt.store(hash, shape, trick, lock0, lock1, tricksRemaining, nodes - nodesBefore,
+                        lower, upper, move);
+                if ((stored & TranspositionTable.STORE_EVICTED) != 0) stats.ttOverwrites++;
+                if ((stored & TranspositionTable.STORE_COLLIDED) != 0) stats.ttCollisions++;
+            }
+
+            relevant = rel;
+            return value;
         }
+    }
+
+    /**
+     * Searches run on the pool for the thread that creates the Fork.
+     * Interrupting that thread stops them, and the solve is cancelled once
+     * none of them is running.
+     */
+    private static class Fork {
+        private final Thread caller = Thread.currentThread();
+        private volatile boolean interrupted;
 
-        // Store in transposition table
-        if (useTT) {
-            int slot = tt.store(key);
-            if (value <= origAlpha) {
-                int cur = tt.upper(slot);
-                if (value < cur) tt.setUpper(slot, value);
-            } else if (value >= origBeta) {
-                int cur = tt.lower(slot);
-                if (value > cur) tt.setLower(slot, value);
+        boolean stopped() {
+            return interrupted || caller.isInterrupted();
+        }
+
+        /**
+         * Wait for the tasks. ForkJoinTask.join() would hide an interrupt
+         * from the tasks until they are done, so the wait is interruptible
+         * and an interrupt is passed on to them through {@link #stopped}.
+         */
+        void joinAll(List<ForkJoinTask<?>> tasks) {
+            RuntimeException failure = null;
+            for (ForkJoinTask<?> task : tasks) {
+                while (true) {
+                    try {
+                        task.get();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        if (failure == null) {
+                            failure = e.getCause() instanceof RuntimeException re ? re
+                                    : new RuntimeException(e.getCause());
+                        }
+                        break;
+                    }
+                }
+            }
+            if (interrupted || Thread.currentThread().isInterrupted()) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Solve interrupted");
+            }
+            if (failure != null) throw failure;
+        }
+    }
+
+    /**
+     * The root moves after the first, searched in parallel. Each one gets
+     * its own copy of the position and its own Search, with the window
+     * narrowed by the results so far; the first cutoff stops the others.
+     */
+    private final class RootSplit extends Fork {
+        private final boolean nsToPlay;
+        private int alpha;
+        private int beta;
+        private int value;
+        private long relevant;
+        private volatile boolean cutoff;
+
+        RootSplit(boolean nsToPlay, int value, int alpha, int beta, long relevant) {
+            this.nsToPlay = nsToPlay;
+            this.value = value;
+            this.alpha = nsToPlay ? Math.max(alpha, value) : alpha;
+            this.beta = nsToPlay ? beta : Math.min(beta, value);
+            this.relevant = relevant;
+        }
+
+        void run(GameState state, int[] moves, int moveCount) {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(moveCount - 1);
+            for (int i = 1; i < moveCount; i++) {
+                GameState copy = new GameState(state);
+                int card = moves[i] & 0x3F;
+                tasks.add(pool.submit(() -> search(copy, card)));
+            }
+            joinAll(tasks);
+        }
+
+        @Override
+        boolean stopped() {
+            return cutoff || super.stopped();
+        }
+
+        private void search(GameState state, int card) {
+            int a, b;
+            synchronized (this) {
+                if (cutoff) return;
+                a = alpha;
+                b = beta;
+            }
+            Search search = new Search(this);
+            state.playCardFast(card);
+            int v;
+            try {
+                v = search.alphaBeta(state, a, b, 1);
+            } catch (SearchAborted e) {
+                return;
+            } finally {
+                splitNodes.addAndGet(search.nodes);
+                synchronized (this) {
+                    AlphaBetaSolver.this.search.stats.add(search.stats);
+                }
+            }
+            merge(v, search.relevant | 1L << card);
+        }
+
+        private synchronized void merge(int v, long childRel) {
+            if (cutoff) return;
+            if (nsToPlay) {
+                value = Math.max(value, v);
+                alpha = Math.max(alpha, value);
             } else {
-                tt.setLower(slot, value);
-                tt.setUpper(slot, value);
+                value = Math.min(value, v);
+                beta = Math.min(beta, value);
+            }
+            if (alpha >= beta) {
+                relevant = childRel;
+                cutoff = true;
+            } else {
+                relevant |= childRel;
             }
         }
+    }
+
+    /** Unwinds a split or sibling search once another root move has produced a cutoff, or on an interrupt. */
+    private static final class SearchAborted extends RuntimeException {
+        private static final long serialVersionUID = 1L;
 
-        return value;
+        SearchAborted() {
+            super(null, null, false, false);
+        }
     }
 }
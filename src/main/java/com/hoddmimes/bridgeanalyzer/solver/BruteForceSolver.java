@@ -2,14 +2,12 @@ package com.hoddmimes.bridgeanalyzer.solver;
 
 import com.hoddmimes.bridgeanalyzer.game.Deal;
 import com.hoddmimes.bridgeanalyzer.game.GameState;
-import com.hoddmimes.bridgeanalyzer.model.Card;
 import com.hoddmimes.bridgeanalyzer.model.Direction;
 import com.hoddmimes.bridgeanalyzer.model.Trump;
 
-public class BruteForceSolver implements Solver {
+import java.util.Arrays;
 
-    // Pre-allocated move buffers per recursion depth
-    private final Card[][] moveBuffers = new Card[52][13];
+public class BruteForceSolver implements Solver {
 
     @Override
     public int solve(Deal deal, Trump trump, Direction declarer) {
@@ -17,6 +15,20 @@ public class BruteForceSolver implements Solver {
         return minimax(state, 0);
     }
 
+    @Override
+    public int[] solveAllMoves(GameState position) {
+        GameState state = new GameState(position);
+        int[] values = new int[52];
+        Arrays.fill(values, -1);
+        for (long moves = state.legalMoveMask(); moves != 0; moves &= moves - 1) {
+            int card = Long.numberOfTrailingZeros(moves);
+            int undo = state.playCardFast(card);
+            values[card] = minimax(state, 1);
+            state.undoCardFast(card, undo);
+        }
+        return values;
+    }
+
     private int minimax(GameState state, int depth) {
         if (state.isTerminal()) {
             return state.nsTricks();
@@ -34,13 +46,11 @@ public class BruteForceSolver implements Solver {
         int nsMax = state.nsTricks() + tricksRemaining;
         int nsMin = state.nsTricks();
 
-        Card[] moves = moveBuffers[depth];
-        int moveCount = state.fillLegalMovesReduced(moves);
-        boolean nsToPlay = state.nextPlayer().isNS();
+        boolean nsToPlay = state.nsToPlay();
         int best = nsToPlay ? -1 : Integer.MAX_VALUE;
 
-        for (int i = 0; i < moveCount; i++) {
-            Card card = moves[i];
+        for (long moves = state.reducedMoveMask(); moves != 0; moves &= moves - 1) {
+            int card = Long.numberOfTrailingZeros(moves);
             int undo = state.playCardFast(card);
             int result = minimax(state, depth + 1);
             state.undoCardFast(card, undo);
@@ -0,0 +1,58 @@
+package com.hoddmimes.bridgeanalyzer.solver;
+
+import com.hoddmimes.bridgeanalyzer.game.Deal;
+import com.hoddmimes.bridgeanalyzer.game.GameState;
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+import com.hoddmimes.bridgeanalyzer.model.Trump;
+
+/**
+ * A solver that answers from a {@link ResultCache} when the deal's table
+ * is stored there. Tables solved by solveTable() are stored afterwards;
+ * single contracts of deals that are not in the cache are passed on to the
+ * solver without being stored. Several caching solvers may share a cache.
+ */
+public class CachingSolver implements Solver {
+    private final Solver solver;
+    private final ResultCache cache;
+    private boolean hit;
+
+    public CachingSolver(Solver solver, ResultCache cache) {
+        this.solver = solver;
+        this.cache = cache;
+    }
+
+    @Override
+    public int solve(Deal deal, Trump trump, Direction declarer) {
+        DDTable table = cache.lookup(deal);
+        hit = table != null;
+        if (!hit) {
+            return solver.solve(deal, trump, declarer);
+        }
+        int tricks = table.tricks(trump, declarer);
+        return declarer.isNS() ? tricks : deal.hand(Direction.NORTH).cardCount() - tricks;
+    }
+
+    @Override
+    public DDTable solveTable(Deal deal) {
+        DDTable table = cache.lookup(deal);
+        hit = table != null;
+        if (!hit) {
+            table = solver.solveTable(deal);
+            cache.store(deal, table);
+        }
+        return table;
+    }
+
+    /** Positions are passed on to the solver; the cache only holds whole deals. */
+    @Override
+    public int[] solveAllMoves(GameState state) {
+        hit = false;
+        return solver.solveAllMoves(state);
+    }
+
+    /** The solver's counters, or null if the last call was answered from the cache. */
+    @Override
+    public SolverStats lastStats() {
+        return hit ? null : solver.lastStats();
+    }
+}
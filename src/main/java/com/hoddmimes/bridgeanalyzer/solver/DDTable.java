@@ -0,0 +1,25 @@
+package com.hoddmimes.bridgeanalyzer.solver;
+
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+import com.hoddmimes.bridgeanalyzer.model.Trump;
+
+/**
+ * Double-dummy table of a deal: the tricks each declarer takes in each
+ * strain, packed into one byte per cell (strain * 4 + declarer).
+ */
+public final class DDTable {
+    private final byte[] cells = new byte[Trump.values().length * 4];
+
+    /** Tricks the declarer takes in the strain. */
+    public int tricks(Trump trump, Direction declarer) {
+        return cells[index(trump, declarer)];
+    }
+
+    void set(Trump trump, Direction declarer, int tricks) {
+        cells[index(trump, declarer)] = (byte) tricks;
+    }
+
+    private static int index(Trump trump, Direction declarer) {
+        return trump.ordinal() * 4 + declarer.index();
+    }
+}
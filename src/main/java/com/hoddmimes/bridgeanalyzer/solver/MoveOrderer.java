@@ -0,0 +1,217 @@
+package com.hoddmimes.bridgeanalyzer.solver;
+
+import com.hoddmimes.bridgeanalyzer.game.GameState;
+import com.hoddmimes.bridgeanalyzer.game.Trick;
+
+/**
+ * Move ordering for one search thread.
+ *
+ * Each move gets a bridge score for the side to play, depending on its seat
+ * in the trick: leads cash winners, lead towards partner's winners or from
+ * sequences and avoid giving the opponents a ruff; second hand plays low
+ * unless covering an honour; third hand plays high enough to beat fourth
+ * hand, or low when partner already holds the trick; fourth hand wins as
+ * cheaply as it can. Ruffs are preferred when they cannot be overruffed,
+ * and discards come from small cards.
+ *
+ * On top of that come the best move stored in the transposition table,
+ * two killer moves per depth (moves that recently caused a cutoff at the
+ * same depth) and a history table of cutoffs per player and card as the
+ * tie-breaker.
+ */
+final class MoveOrderer {
+    private static final long SUIT_MASK = 0x1FFFL;
+    private static final int KILLER_BONUS = 16;
+    private static final int HINT_SCORE = 1 << 16;
+    private static final int HISTORY_CAP = 255;
+
+    // Per depth the last two cutoff cards, +1 so that 0 means none
+    private final int[][] killers = new int[52][2];
+    private final int[] history = new int[4 * 52];
+
+    // Per-node context, set by order()
+    private GameState state;
+    private int player;
+    private int trumpSuit;
+    private int count;
+    private int ledSuit;
+    private long remaining;
+
+    /** Forget killers and history; called once per deal and strain. */
+    void reset() {
+        for (int[] k : killers) {
+            k[0] = 0;
+            k[1] = 0;
+        }
+        java.util.Arrays.fill(history, 0);
+    }
+
+    /**
+     * Write the moves to the buffer as {@code score << 6 | card}, best first,
+     * and return their number.
+     *
+     * @param hint card the transposition table recorded as best, or -1
+     */
+    int order(GameState state, long moves, int[] buffer, int depth, int hint) {
+        this.state = state;
+        this.player = state.nextPlayerIndex();
+        this.trumpSuit = state.trump().suitIndex();
+        this.count = state.currentTrick().count();
+        this.ledSuit = state.currentTrick().ledSuitIndex();
+        this.remaining = state.remainingCards() | state.currentTrick().cardMask();
+        int killer0 = killers[depth][0] - 1, killer1 = killers[depth][1] - 1;
+
+        int n = 0;
+        for (long b = moves; b != 0; b &= b - 1) {
+            int card = Long.numberOfTrailingZeros(b);
+            int score;
+            if (card == hint) {
+                score = HINT_SCORE;
+            } else {
+                int bridge = count == 0 ? leadScore(card) : followScore(card);
+                if (card == killer0 || card == killer1) bridge += KILLER_BONUS;
+                score = bridge << 8 | Math.min(history[player * 52 + card], HISTORY_CAP);
+            }
+            int key = score << 6 | card;
+
+            // Insertion sort on the packed keys (small arrays)
+            int j = n - 1;
+            while (j >= 0 && buffer[j] >>> 6 < key >>> 6) {
+                buffer[j + 1] = buffer[j];
+                j--;
+            }
+            buffer[j + 1] = key;
+            n++;
+        }
+        return n;
+    }
+
+    /** Record a move that caused a cutoff. */
+    void cutoff(int player, int card, int depth, int tricksRemaining) {
+        int[] k = killers[depth];
+        if (k[0] != card + 1) {
+            k[1] = k[0];
+            k[0] = card + 1;
+        }
+        history[player * 52 + card] += tricksRemaining;
+    }
+
+    private int leadScore(int card) {
+        int suit = card / 13;
+        int base = suit * 13;
+        long suitCards = (remaining >>> base) & SUIT_MASK;
+        long mine = suitBits(player, suit);
+        long pard = suitBits(player + 2, suit);
+        long top = Long.highestOneBit(suitCards) << base;
+        int rank = card % 13;
+
+        int score = 20;
+        boolean oppRuff = canRuff(player + 1, suit) || canRuff(player + 3, suit);
+        if ((1L << card) == top) {
+            score += oppRuff ? -10 : 40;
+        } else if ((top & (pard << base)) != 0) {
+            // Towards partner's winner, with a small card
+            score += 30 - rank / 2;
+        } else {
+            // Top of a sequence: the next lower remaining card is ours too
+            long below = suitCards & ((1L << (rank)) - 1);
+            if (below != 0 && (mine & Long.highestOneBit(below)) != 0 && rank >= 8) {
+                score += 15;
+            }
+            // Leading away from an honour that is not a winner
+            long honours = mine & ~((1L << 9) - 1) & ~(top >>> base);
+            if (rank < 8 && honours != 0) {
+                score -= 10;
+            }
+        }
+        if (canRuff(player + 2, suit)) score += 25;
+        if (oppRuff) score -= 20;
+        if (suit == trumpSuit) {
+            int ours = Long.bitCount(mine | pard);
+            int theirs = Long.bitCount(suitBits(player + 1, suit) | suitBits(player + 3, suit));
+            score += ours > theirs ? 10 : -5;
+        }
+        return Math.max(score, 0);
+    }
+
+    private int followScore(int card) {
+        Trick trick = state.currentTrick();
+        int suit = card / 13;
+        int rank = card % 13;
+        boolean partnerWins = trick.winnerIndex() == ((player + 2) & 3);
+        boolean beats = trick.beatsWinner(card);
+        int low = 12 - rank;
+
+        if (suit == ledSuit) {
+            switch (count) {
+                case 1 -> {
+                    // Second hand low, but cover an honour
+                    int led = trick.cardAt(0);
+                    if (led % 13 >= 9 && beats && isLowestBeating(card)) return 50;
+                    return 20 + low;
+                }
+                case 2 -> {
+                    if (partnerWins && !fourthCanBeat(trick.winningCardIndex())) return 20 + low;
+                    if (beats && !fourthCanBeat(card)) return 60 + low;
+                    if (beats) return 40 + rank;
+                    return 20 + low;
+                }
+                default -> {
+                    if (!partnerWins && beats) return 60 + low;
+                    return 20 + low;
+                }
+            }
+        }
+        if (suit == trumpSuit) {
+            if (!beats || (partnerWins && (count == 3 || !fourthCanBeat(trick.winningCardIndex())))) {
+                return 5;
+            }
+            return overruffRisk(card) ? 35 + rank / 2 : 50 + low;
+        }
+        // Discard: small cards, and not a winner
+        long top = Long.highestOneBit((remaining >>> (suit * 13)) & SUIT_MASK);
+        return 10 + low - ((1L << rank) == top ? 10 : 0);
+    }
+
+    /** True if the card is the lowest of our cards that beats the trick. */
+    private boolean isLowestBeating(int card) {
+        int suit = card / 13;
+        long below = suitBits(player, suit) & ((1L << (card % 13)) - 1);
+        for (long b = below; b != 0; b &= b - 1) {
+            if (state.currentTrick().beatsWinner(suit * 13 + Long.numberOfTrailingZeros(b))) return false;
+        }
+        return true;
+    }
+
+    /** True if fourth hand (the player after us, third in the trick) can beat the card. */
+    private boolean fourthCanBeat(int card) {
+        int fourth = player + 1;
+        long follow = suitBits(fourth, ledSuit);
+        if (follow != 0) {
+            return card / 13 == ledSuit && Long.highestOneBit(follow) > 1L << (card % 13);
+        }
+        if (trumpSuit < 0 || ledSuit == trumpSuit) return false;
+        long trumps = suitBits(fourth, trumpSuit);
+        return trumps != 0 && (card / 13 != trumpSuit || Long.highestOneBit(trumps) > 1L << (card % 13));
+    }
+
+    /** True if an opponent still to play in the trick can overruff the trump. */
+    private boolean overruffRisk(int card) {
+        long ours = 1L << (card % 13);
+        for (int seat = count + 1; seat < 4; seat++) {
+            int p = player + seat - count;
+            if (((p - player) & 1) == 0) continue;
+            if (suitBits(p, ledSuit) == 0 && Long.highestOneBit(suitBits(p, trumpSuit)) > ours) return true;
+        }
+        return false;
+    }
+
+    /** True if the player is void in the suit and holds a trump. */
+    private boolean canRuff(int p, int suit) {
+        return trumpSuit >= 0 && suit != trumpSuit && suitBits(p, suit) == 0 && suitBits(p, trumpSuit) != 0;
+    }
+
+    private long suitBits(int p, int suit) {
+        return (state.handBits(p & 3) >>> (suit * 13)) & SUIT_MASK;
+    }
+}
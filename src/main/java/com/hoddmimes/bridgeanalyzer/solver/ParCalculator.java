@@ -0,0 +1,178 @@
+package com.hoddmimes.bridgeanalyzer.solver;
+
+import com.hoddmimes.bridgeanalyzer.game.Deal;
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+import com.hoddmimes.bridgeanalyzer.model.Trump;
+
+/**
+ * Par score and par contract of a double-dummy table.
+ *
+ * Par is found by backward induction over the 35 bids, from 7NT down:
+ * after a side's bid the other side either lets it stand (a failing
+ * contract is doubled, a making one is not) or bids higher, whichever is
+ * better for it. The side's best contract in a strain is played by the
+ * partner who takes more tricks. The auction opens with the dealer's side;
+ * four passes score 0. Among equal results the lower bid and the shorter
+ * auction are preferred, so sacrifices come out doubled and at the
+ * cheapest level.
+ *
+ * A calculator keeps its scratch arrays and last result in fields, so
+ * compute() does not allocate; use one per thread.
+ */
+public final class ParCalculator {
+    // Bids are ranked (level - 1) * 5 + strain, strains in bidding order
+    private static final int BIDS = 35;
+    private static final Trump[] STRAINS = {Trump.CLUBS, Trump.DIAMONDS, Trump.HEARTS, Trump.SPADES, Trump.NO_TRUMP};
+    private static final int NS = 0, EW = 1;
+
+    // Per strain and side (strain * 2 + side): best declarer and its tricks
+    private final int[] declarers = new int[10];
+    private final int[] tricks = new int[10];
+    // Per bid and side that made it: the other side's overcall, -1 to let it stand
+    private final int[] replies = new int[BIDS * 2];
+    private final boolean[] vulnerable = new boolean[2];
+
+    private int score;
+    private int bid = -1;
+    private int side;
+
+    /** Par of the deal's table, with the deal's vulnerability (LIN sv) and dealer; returns the NS score. */
+    public int compute(DDTable table, Deal deal) {
+        String sv = deal.vulnerability();
+        boolean both = "B".equalsIgnoreCase(sv);
+        boolean nsVul = both || "N".equalsIgnoreCase(sv);
+        boolean ewVul = both || "E".equalsIgnoreCase(sv);
+        return compute(table, nsVul, ewVul, deal.dealer() != null ? deal.dealer() : Direction.NORTH);
+    }
+
+    /** Par of the table; returns the NS score. */
+    public int compute(DDTable table, boolean nsVul, boolean ewVul, Direction dealer) {
+        vulnerable[NS] = nsVul;
+        vulnerable[EW] = ewVul;
+        for (int strain = 0; strain < 5; strain++) {
+            for (int s = NS; s <= EW; s++) {
+                Direction first = s == NS ? Direction.NORTH : Direction.EAST;
+                int t1 = table.tricks(STRAINS[strain], first);
+                int t2 = table.tricks(STRAINS[strain], first.partner());
+                declarers[strain * 2 + s] = t2 > t1 ? first.partner().index() : first.index();
+                tricks[strain * 2 + s] = Math.max(t1, t2);
+            }
+        }
+
+        // Best result for each side of bidding some bid above the current one,
+        // NS maximising and EW minimising the NS score
+        int bestNs = Integer.MIN_VALUE, bestNsBid = -1;
+        int bestEw = Integer.MAX_VALUE, bestEwBid = -1;
+        for (int r = BIDS - 1; r >= 0; r--) {
+            int standNs = result(r, NS);
+            int valueNs = standNs;
+            replies[r * 2 + NS] = -1;
+            if (bestEwBid >= 0 && bestEw < standNs) {
+                valueNs = bestEw;
+                replies[r * 2 + NS] = bestEwBid;
+            }
+            int standEw = result(r, EW);
+            int valueEw = standEw;
+            replies[r * 2 + EW] = -1;
+            if (bestNsBid >= 0 && bestNs > standEw) {
+                valueEw = bestNs;
+                replies[r * 2 + EW] = bestNsBid;
+            }
+            if (valueNs >= bestNs) {
+                bestNs = valueNs;
+                bestNsBid = r;
+            }
+            if (valueEw <= bestEw) {
+                bestEw = valueEw;
+                bestEwBid = r;
+            }
+        }
+
+        // Opening: the sides take turns from the dealer's; four passes score 0
+        int opener = dealer.isNS() ? NS : EW;
+        score = 0;
+        bid = -1;
+        for (int turn = 3; turn >= 0; turn--) {
+            int s = (turn & 1) == 0 ? opener : 1 - opener;
+            int open = s == NS ? bestNs : bestEw;
+            if (s == NS ? open > score : open < score) {
+                score = open;
+                bid = s == NS ? bestNsBid : bestEwBid;
+                side = s;
+            }
+        }
+
+        // Follow the overcalls to the final contract
+        if (bid >= 0) {
+            for (int reply = replies[bid * 2 + side]; reply >= 0; reply = replies[bid * 2 + side]) {
+                bid = reply;
+                side = 1 - side;
+            }
+        }
+        return score;
+    }
+
+    /** Par score of the last table, for NS. */
+    public int score() { return score; }
+
+    /** True if the last table's par is to pass the deal out. */
+    public boolean passedOut() { return bid < 0; }
+
+    /** Level of the par contract. */
+    public int level() { return bid / 5 + 1; }
+
+    /** Strain of the par contract. */
+    public Trump strain() { return STRAINS[bid % 5]; }
+
+    /** Declarer of the par contract. */
+    public Direction declarer() { return Direction.fromIndex(declarers[bid % 5 * 2 + side]); }
+
+    /** True if the par contract fails, and so is doubled. */
+    public boolean doubled() { return tricks[bid % 5 * 2 + side] < level() + 6; }
+
+    /** The last par as text, e.g. "4S by N +420" or "5Hx by E +300". */
+    public String describe() {
+        if (passedOut()) return "passed out 0";
+        return String.format("%d%s%s by %s %+d", level(), strain().label(), doubled() ? "x" : "",
+                declarer().name().charAt(0), score);
+    }
+
+    /**
+     * Contracts the declarer makes: bit {@code (level - 1) * 5 + strain}
+     * for each level and strain (clubs, diamonds, hearts, spades, NT).
+     */
+    public static long makeable(DDTable table, Direction declarer) {
+        long mask = 0;
+        for (int strain = 0; strain < 5; strain++) {
+            int levels = table.tricks(STRAINS[strain], declarer) - 6;
+            for (int level = 1; level <= levels; level++) {
+                mask |= 1L << ((level - 1) * 5 + strain);
+            }
+        }
+        return mask;
+    }
+
+    /** NS score of bid r played by the side and let stand. */
+    private int result(int r, int s) {
+        int level = r / 5 + 1, strain = r % 5;
+        int points = contractScore(level, strain, tricks[strain * 2 + s], vulnerable[s]);
+        return s == NS ? points : -points;
+    }
+
+    /** Declarer's score: undoubled if the contract makes, doubled if not. */
+    static int contractScore(int level, int strain, int tricks, boolean vulnerable) {
+        int needed = level + 6;
+        if (tricks >= needed) {
+            int perTrick = strain <= 1 ? 20 : 30;
+            int contract = level * perTrick + (strain == 4 ? 10 : 0);
+            int points = contract + (tricks - needed) * perTrick;
+            points += contract >= 100 ? (vulnerable ? 500 : 300) : 50;
+            if (level == 6) points += vulnerable ? 750 : 500;
+            if (level == 7) points += vulnerable ? 1500 : 1000;
+            return points;
+        }
+        int down = needed - tricks;
+        if (vulnerable) return -(300 * down - 100);
+        return -(down <= 3 ? 200 * down - 100 : 300 * down - 400);
+    }
+}
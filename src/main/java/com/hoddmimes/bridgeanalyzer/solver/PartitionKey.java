@@ -0,0 +1,155 @@
+package com.hoddmimes.bridgeanalyzer.solver;
+
+import com.hoddmimes.bridgeanalyzer.game.Trick;
+
+/**
+ * Relative-rank position keys for partition search.
+ *
+ * Only the relative order of the remaining cards matters for the rest of the
+ * play, so a trick-boundary position is described by its shape (the length
+ * of every suit in every hand, one nibble each) and, per suit, the owners of
+ * the remaining cards from the highest down (2 bits each: N=0, E=1, S=2, W=3).
+ * GameState keeps both up to date as cards are played, see
+ * {@code GameState.shape()} and {@code GameState.rankOwners()}.
+ *
+ * A stored entry keeps the owners of only the top k cards of each suit: the
+ * cards ranked at or above the lowest card that influenced the result. Below
+ * that the cards are interchangeable small cards, so every position with the
+ * same shape and the same owners of those top cards has the same value.
+ *
+ * Owner words pack two suits: bits 0-25 and 26-51 hold the owner sequences,
+ * bits 52-55 and 56-59 the stored k per suit, and bits 60-61 of the first
+ * word the player on lead (the player to move within a trick).
+ *
+ * A position within a trick also has a trick key, see {@link #trickKey}.
+ */
+final class PartitionKey {
+    private static final long SUIT_MASK = 0x1FFFL;
+    private static final int SUIT_FIELD_BITS = 26;
+    private static final int COUNT_SHIFT = 52;
+    private static final int LEADER_SHIFT = 60;
+    private static final long COUNT_BITS = 0xFFL << COUNT_SHIFT;
+    private static final long LEADER_BITS = 3L << LEADER_SHIFT;
+
+    private PartitionKey() {}
+
+    /**
+     * Bucket hash over the shape, the trick key, the leader and the owners of
+     * the top {@code top} cards of every suit. Entries stored under it must
+     * keep at least that many cards per suit (see {@link #keepRelevant}), so
+     * every position of a class hashes to the class's bucket.
+     */
+    static long hash(long shape, int trick, long owners0, long owners1, int top) {
+        long topMask = top >= 13 ? (1L << SUIT_FIELD_BITS) - 1 : (1L << (2 * top)) - 1;
+        topMask |= topMask << SUIT_FIELD_BITS;
+        long h = (shape + trick) * 0x9E3779B97F4A7C15L ^ (owners0 & (topMask | LEADER_BITS));
+        h = h * 0xFF51AFD7ED558CCDL ^ (owners1 & topMask);
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    /** The owner word of suits 0 and 1 with the player on lead recorded. */
+    static long withLeader(long owners0, int leader) {
+        return owners0 | (long) leader << LEADER_SHIFT;
+    }
+
+    /**
+     * Reduce a full owner word to the top cards that are relevant according
+     * to the absolute card mask, but never fewer than {@code minKeep} per
+     * suit, recording the kept count per suit.
+     */
+    static long keepRelevant(long owners, long remaining, long relevant, int pair, int minKeep) {
+        long word = owners & LEADER_BITS;
+        for (int i = 0; i < 2; i++) {
+            int base = (pair * 2 + i) * 13;
+            long suit = (remaining >>> base) & SUIT_MASK;
+            long rel = (relevant >>> base) & suit;
+            int k = rel == 0 ? 0 : Long.bitCount(suit >>> Long.numberOfTrailingZeros(rel));
+            k = Math.max(k, Math.min(minKeep, Long.bitCount(suit)));
+            if (k == 0) continue;
+            int shift = i * SUIT_FIELD_BITS;
+            word |= owners & (((1L << (2 * k)) - 1) << shift);
+            word |= (long) k << (COUNT_SHIFT + 4 * i);
+        }
+        return word;
+    }
+
+    /**
+     * Key of the cards on the table, 0 at a trick boundary. Only the led suit,
+     * the player winning the trick, whether it is ruffed and how many of the
+     * remaining cards of the winning suit are above the winning card decide
+     * the rest of the trick, so the key holds just those (10 bits). Entries
+     * must keep those higher cards, see {@link #beatingCards}.
+     */
+    static int trickKey(Trick trick, long remaining) {
+        if (trick.count() == 0) return 0;
+        int winner = trick.winningCardIndex();
+        int led = trick.ledSuitIndex();
+        int ruffed = winner / 13 != led ? 1 : 0;
+        int above = Long.bitCount(beatingCards(winner, remaining));
+        return 1 << 9 | led << 7 | trick.winnerIndex() << 5 | ruffed << 4 | above;
+    }
+
+    /** The remaining cards of the winning card's suit that rank above it. */
+    static long beatingCards(int winner, long remaining) {
+        int top = winner - winner % 13 + 13;
+        return remaining & ((1L << top) - 1) & -(2L << winner);
+    }
+
+    /** True if a position's full owner word falls in the class of a stored word. */
+    static boolean matches(long stored, long owners) {
+        return ((stored ^ owners) & matchMask(stored)) == 0;
+    }
+
+    /** Kept count of every suit of two stored words, 4 bits per suit from suit 0 up. */
+    static int keptCounts(long stored0, long stored1) {
+        return (int) (stored0 >>> COUNT_SHIFT) & 0xFF | ((int) (stored1 >>> COUNT_SHIFT) & 0xFF) << 8;
+    }
+
+    /** Absolute mask of the remaining cards kept according to {@link #keptCounts}. */
+    static long keptCards(int counts, long remaining) {
+        long cards = 0;
+        for (int suit = 0; suit < 4; suit++) {
+            int k = (counts >>> (4 * suit)) & 0xF;
+            int base = suit * 13;
+            long suitCards = (remaining >>> base) & SUIT_MASK;
+            for (; k > 0; k--) {
+                long top = Long.highestOneBit(suitCards);
+                cards |= top << base;
+                suitCards &= ~top;
+            }
+        }
+        return cards;
+    }
+
+    /**
+     * Relative code of a card: its suit and the number of remaining cards
+     * above it, so that it names the same card in every position with the
+     * same relative ranks.
+     */
+    static int encodeMove(int card, long remaining) {
+        int base = card - card % 13;
+        long above = (remaining >>> (card + 1)) & (SUIT_MASK >>> (card - base + 1));
+        return (card / 13) << 4 | Long.bitCount(above);
+    }
+
+    /** The remaining card with the relative code, or -1 if there is none. */
+    static int decodeMove(int code, long remaining) {
+        int base = (code >>> 4) * 13;
+        long suit = (remaining >>> base) & SUIT_MASK;
+        for (int above = code & 0xF; above > 0 && suit != 0; above--) {
+            suit &= ~Long.highestOneBit(suit);
+        }
+        return suit == 0 ? -1 : base + 63 - Long.numberOfLeadingZeros(suit);
+    }
+
+    private static long matchMask(long stored) {
+        int k0 = (int) (stored >>> COUNT_SHIFT) & 0xF;
+        int k1 = (int) (stored >>> (COUNT_SHIFT + 4)) & 0xF;
+        return ((1L << (2 * k0)) - 1)
+                | ((1L << (2 * k1)) - 1) << SUIT_FIELD_BITS
+                | LEADER_BITS;
+    }
+}
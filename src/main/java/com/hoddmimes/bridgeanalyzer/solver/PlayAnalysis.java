@@ -0,0 +1,113 @@
+package com.hoddmimes.bridgeanalyzer.solver;
+
+import com.hoddmimes.bridgeanalyzer.model.Card;
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+import com.hoddmimes.bridgeanalyzer.model.Trump;
+
+/**
+ * The double-dummy value of a recorded play before and after every card,
+ * and the tricks each card cost its side. Made by {@link PlayAnalyzer}.
+ */
+public final class PlayAnalysis {
+    private final Trump trump;
+    private final Direction declarer;
+    private final int level;
+    private final int totalTricks;
+    private final int claim;
+    // Cards in the record, more than analysed if one could not be played
+    private final int recorded;
+    private final int[] cards;
+    private final int[] players;
+    // NS tricks with i cards played, for i = 0 .. cards.length
+    private final int[] nsTricks;
+
+    PlayAnalysis(Trump trump, Direction declarer, int level, int totalTricks, int claim, int recorded,
+                 int[] cards, int[] players, int[] nsTricks) {
+        this.trump = trump;
+        this.declarer = declarer;
+        this.level = level;
+        this.totalTricks = totalTricks;
+        this.claim = claim;
+        this.recorded = recorded;
+        this.cards = cards;
+        this.players = players;
+        this.nsTricks = nsTricks;
+    }
+
+    public Trump trump() { return trump; }
+    public Direction declarer() { return declarer; }
+
+    /** Cards analysed: the recorded play up to its end or its first card that could not be played. */
+    public int cards() { return cards.length; }
+
+    /** Bit index of the i-th card played. */
+    public int card(int i) { return cards[i]; }
+
+    public Direction player(int i) { return Direction.fromIndex(players[i]); }
+
+    /** The declarer's double-dummy tricks once i cards have been played. */
+    public int tricks(int i) {
+        return declarer.isNS() ? nsTricks[i] : totalTricks - nsTricks[i];
+    }
+
+    /** Tricks the i-th card cost its side, 0 if it kept the double-dummy value. */
+    public int cost(int i) {
+        int change = nsTricks[i + 1] - nsTricks[i];
+        return (players[i] & 1) == 0 ? -change : change;
+    }
+
+    /** Cards of the declaring side (or of the defence) that cost a trick. */
+    public int mistakes(boolean declaring) {
+        int n = 0;
+        for (int i = 0; i < cards.length; i++) {
+            if (cost(i) > 0 && declaring(i) == declaring) n++;
+        }
+        return n;
+    }
+
+    /** Tricks the declaring side (or the defence) gave away. */
+    public int tricksLost(boolean declaring) {
+        int lost = 0;
+        for (int i = 0; i < cards.length; i++) {
+            if (declaring(i) == declaring) lost += cost(i);
+        }
+        return lost;
+    }
+
+    /** True if the analysis stopped at a recorded card that could not be played. */
+    public boolean stoppedEarly() { return cards.length < recorded; }
+
+    /** Tricks the declarer claimed in all, or -1 if the play was not claimed. */
+    public int claim() { return claim; }
+
+    /** The contract, a line per trick with the costly cards marked, and the totals. */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%d%s by %s, double dummy %d%n", level, trump.label(), declarer.name().charAt(0),
+                tricks(0)));
+        for (int start = 0; start < cards.length; start += 4) {
+            sb.append(String.format("  Trick %2d:", start / 4 + 1));
+            int end = Math.min(start + 4, cards.length);
+            for (int i = start; i < end; i++) {
+                String mark = cost(i) > 0 ? "-" + cost(i) : "";
+                sb.append(String.format("  %s %s %-3s", player(i).name().charAt(0), Card.fromBitIndex(cards[i]), mark));
+            }
+            sb.append(" ".repeat(11 * (start + 4 - end)));
+            sb.append(String.format("  %2d%n", tricks(end)));
+        }
+        sb.append(String.format("  Declarer: %d mistakes, %d tricks; defence: %d mistakes, %d tricks%n",
+                mistakes(true), tricksLost(true), mistakes(false), tricksLost(false)));
+        if (stoppedEarly()) {
+            sb.append(String.format("  Recorded card %d cannot be played, the rest is left out%n", cards.length + 1));
+        }
+        if (claim >= 0) {
+            sb.append(String.format("  Claimed %d, double dummy %d%n", claim, tricks(cards.length)));
+        }
+        return sb.toString();
+    }
+
+    private boolean declaring(int i) {
+        return (players[i] & 1) == (declarer.index() & 1);
+    }
+}
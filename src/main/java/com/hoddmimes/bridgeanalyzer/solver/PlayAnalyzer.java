@@ -0,0 +1,64 @@
+package com.hoddmimes.bridgeanalyzer.solver;
+
+import com.hoddmimes.bridgeanalyzer.game.Deal;
+import com.hoddmimes.bridgeanalyzer.game.GameState;
+import com.hoddmimes.bridgeanalyzer.game.PlayRecord;
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+
+import java.util.Arrays;
+
+/**
+ * Replays the recorded play of a deal card by card and finds the
+ * double-dummy value after every card. The positions of a deal are solved
+ * in one pass over one transposition table: each position follows from
+ * the one before, so much of its tree is already bounded in the table,
+ * and its search starts from the value before the card, which every card
+ * that does not cost a trick keeps.
+ */
+public class PlayAnalyzer {
+    private final AlphaBetaSolver solver;
+
+    public PlayAnalyzer() {
+        this(new AlphaBetaSolver());
+    }
+
+    public PlayAnalyzer(AlphaBetaSolver solver) {
+        this.solver = solver;
+    }
+
+    /** Counters of the last analysis, all positions together. */
+    public SolverStats lastStats() {
+        return solver.lastStats();
+    }
+
+    /**
+     * Analyse the deal's recorded play; null if it has no play record or
+     * the auction has no contract. The analysis stops at the first
+     * recorded card that cannot be played.
+     */
+    public PlayAnalysis analyze(Deal deal) {
+        PlayRecord record = deal.playRecord();
+        if (record == null || record.trump() == null) return null;
+        Direction declarer = record.declarer(deal.dealer() != null ? deal.dealer() : Direction.NORTH);
+        GameState state = new GameState(deal, record.trump(), declarer);
+
+        int count = Math.min(record.cardCount(), 4 * state.totalTricks());
+        int[] cards = new int[count];
+        int[] players = new int[count];
+        int[] nsTricks = new int[count + 1];
+        solver.clearTable();
+        nsTricks[0] = solver.solvePosition(state, -1);
+        int played = 0;
+        while (played < count) {
+            int card = record.card(played);
+            if ((state.legalMoveMask() & 1L << card) == 0) break;
+            cards[played] = card;
+            players[played] = state.nextPlayerIndex();
+            state.playCardFast(card);
+            nsTricks[played + 1] = solver.solvePosition(state, nsTricks[played]);
+            played++;
+        }
+        return new PlayAnalysis(record.trump(), declarer, record.level(), state.totalTricks(), record.claim(), count,
+                Arrays.copyOf(cards, played), Arrays.copyOf(players, played), Arrays.copyOf(nsTricks, played + 1));
+    }
+}
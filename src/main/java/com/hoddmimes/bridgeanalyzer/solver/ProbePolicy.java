@@ -0,0 +1,48 @@
+package com.hoddmimes.bridgeanalyzer.solver;
+
+/**
+ * Decides where within a trick the search uses the transposition table.
+ * Trick-boundary positions are always probed.
+ *
+ * A mid-trick probe costs about as much as a boundary probe but hits far
+ * less often, and what a hit saves grows with the tricks left. The policy
+ * therefore keeps, per seat in the trick and tricks left, the probes made
+ * and the nodes their cutoffs saved (the stored subtree sizes). After every
+ * {@link #WINDOW} probes it switches the slot off if a probe saved less than
+ * {@link #PROBE_COST} nodes on average. A slot that is off is still probed
+ * on one visit in {@code SAMPLE_MASK + 1}, so it can come back.
+ *
+ * One policy is shared by the search threads of a solver without locking;
+ * a lost update only skews the statistics.
+ */
+final class ProbePolicy {
+    // Nodes a probe must save on average to be worth its cost
+    private static final int PROBE_COST = 2;
+    private static final int WINDOW = 1024;
+    private static final int SAMPLE_MASK = 31;
+
+    // Per slot (seat in trick << 4 | tricks left)
+    private final int[] visits = new int[64];
+    private final int[] probes = new int[64];
+    private final long[] saved = new long[64];
+    private final boolean[] off = new boolean[64];
+
+    /** True if a position with the given cards on the table should be probed. */
+    boolean probe(int count, int tricksRemaining) {
+        if (count == 0) return true;
+        if (tricksRemaining < 2) return false;
+        int slot = count << 4 | tricksRemaining;
+        return !off[slot] || (++visits[slot] & SAMPLE_MASK) == 0;
+    }
+
+    /** Record a mid-trick probe and the nodes it saved (0 unless it cut off). */
+    void record(int count, int tricksRemaining, long savedNodes) {
+        int slot = count << 4 | tricksRemaining;
+        saved[slot] += savedNodes;
+        if (++probes[slot] >= WINDOW) {
+            off[slot] = saved[slot] < (long) PROBE_COST * WINDOW;
+            probes[slot] = 0;
+            saved[slot] = 0;
+        }
+    }
+}
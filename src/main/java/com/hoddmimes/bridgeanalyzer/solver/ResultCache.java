@@ -0,0 +1,215 @@
+package com.hoddmimes.bridgeanalyzer.solver;
+
+import com.hoddmimes.bridgeanalyzer.game.Deal;
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+import com.hoddmimes.bridgeanalyzer.model.Trump;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Double-dummy tables of complete deals, kept in a memory-mapped file so
+ * that they survive between runs.
+ *
+ * The key is the deal's canonical form: the owner of every card, 2 bits
+ * per card in bit index order (104 bits). The file is a fixed-size hash
+ * table of buckets of {@link #WAYS} slots; a slot is four longs, a check
+ * word, the key (with the last 4 table cells in the spare bits of its
+ * second word) and the first 16 table cells, 4 bits each. When a bucket
+ * is full a slot chosen by the key is replaced.
+ *
+ * As in {@link TranspositionTable}, the check word is a mix of the other
+ * three, and a slot whose check word does not match reads as empty. So
+ * several threads or local processes may read and write the same file at
+ * once without locks: a torn or lost write only loses an entry, it can
+ * never hand back a wrong table. Only creating the file takes a file lock.
+ */
+public final class ResultCache implements Closeable {
+    public static final int DEFAULT_SIZE_MB = 64;
+
+    private static final int MAGIC = 'D' | 'D' << 8 | 'C' << 16 | '1' << 24;
+    private static final int HEADER_SIZE = 64;
+    private static final int WAYS = 4;
+    private static final int SLOT_SIZE = 32;
+    private static final long FULL_DECK = (1L << 52) - 1;
+    // Key bits in the second key word: owners of cards 32-51
+    private static final long KEY1_MASK = (1L << 40) - 1;
+    private static final int CELLS = Trump.values().length * 4;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer slots;
+    private final int bucketMask;
+
+    private ResultCache(FileChannel channel, MappedByteBuffer slots, int buckets) {
+        this.channel = channel;
+        this.slots = slots;
+        this.bucketMask = buckets - 1;
+    }
+
+    /** Open the cache file, creating it with {@link #DEFAULT_SIZE_MB} if it does not exist. */
+    public static ResultCache open(Path path) throws IOException {
+        return open(path, DEFAULT_SIZE_MB);
+    }
+
+    /**
+     * Open the cache file, creating it with the given size if it does not
+     * exist; an existing file keeps its size.
+     */
+    public static ResultCache open(Path path, int sizeMb) throws IOException {
+        if (sizeMb <= 0) {
+            throw new IllegalArgumentException("Result cache size must be positive: " + sizeMb);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            // Another process may be creating the file
+            FileLock lock = channel.lock();
+            try {
+                if (channel.size() == 0) {
+                    int buckets = Integer.highestOneBit((int) Math.min(
+                            ((long) sizeMb << 20) / (WAYS * SLOT_SIZE), 1 << 24));
+                    header.putInt(MAGIC).putInt(SLOT_SIZE).putInt(WAYS).putInt(Math.max(buckets, 1)).clear();
+                    while (header.hasRemaining()) channel.write(header, header.position());
+                    // Extend the file; the slots read as zero, which is empty
+                    channel.write(ByteBuffer.allocate(1), fileSize(Math.max(buckets, 1)) - 1);
+                    header.clear();
+                }
+                while (header.hasRemaining() && channel.read(header, header.position()) > 0) { }
+            } finally {
+                lock.release();
+            }
+            if (header.position() < HEADER_SIZE || header.getInt(0) != MAGIC || header.getInt(4) != SLOT_SIZE
+                    || header.getInt(8) != WAYS) {
+                throw new IOException("Not a result cache file: " + path);
+            }
+            int buckets = header.getInt(12);
+            if (Integer.bitCount(buckets) != 1 || channel.size() < fileSize(buckets)) {
+                throw new IOException("Result cache file damaged: " + path);
+            }
+            MappedByteBuffer slots = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE,
+                    (long) buckets * WAYS * SLOT_SIZE);
+            slots.order(ByteOrder.LITTLE_ENDIAN);
+            return new ResultCache(channel, slots, buckets);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Number of deals the cache holds when full. */
+    public int capacity() { return (bucketMask + 1) * WAYS; }
+
+    /** The stored table of the deal, or null if there is none or the deal is not complete. */
+    public DDTable lookup(Deal deal) {
+        if (!complete(deal)) return null;
+        long key0 = key(deal, 0), key1 = key(deal, 1);
+        int base = bucket(key0, key1);
+        for (int at = base; at < base + WAYS * SLOT_SIZE; at += SLOT_SIZE) {
+            long check = slots.getLong(at);
+            long word1 = slots.getLong(at + 8);
+            long word2 = slots.getLong(at + 16);
+            long word3 = slots.getLong(at + 24);
+            if (check == check(word1, word2, word3) && word1 == key0 && (word2 & KEY1_MASK) == key1) {
+                return unpack(word3, word2 >>> 40);
+            }
+        }
+        return null;
+    }
+
+    /** Store the deal's table; does nothing if the deal is not complete. */
+    public void store(Deal deal, DDTable table) {
+        if (!complete(deal)) return;
+        long key0 = key(deal, 0), key1 = key(deal, 1);
+        long cells = 0, high = 0;
+        for (int i = 0; i < CELLS; i++) {
+            long tricks = table.tricks(Trump.values()[i / 4], Direction.fromIndex(i % 4));
+            if (i < 16) {
+                cells |= tricks << (i * 4);
+            } else {
+                high |= tricks << ((i - 16) * 4);
+            }
+        }
+        long word2 = key1 | high << 40;
+
+        int base = bucket(key0, key1);
+        int victim = base + (int) ((key0 ^ key1) >>> 62) * SLOT_SIZE;
+        for (int at = base; at < base + WAYS * SLOT_SIZE; at += SLOT_SIZE) {
+            long check = slots.getLong(at);
+            long word1 = slots.getLong(at + 8);
+            long stored2 = slots.getLong(at + 16);
+            if (check != check(word1, stored2, slots.getLong(at + 24))
+                    || (word1 == key0 && (stored2 & KEY1_MASK) == key1)) {
+                victim = at;
+                break;
+            }
+        }
+        slots.putLong(victim + 8, key0);
+        slots.putLong(victim + 16, word2);
+        slots.putLong(victim + 24, cells);
+        slots.putLong(victim, check(key0, word2, cells));
+    }
+
+    /** Write the cache to disk and close the file. */
+    @Override
+    public void close() throws IOException {
+        slots.force();
+        channel.close();
+    }
+
+    private static long fileSize(int buckets) {
+        return HEADER_SIZE + (long) buckets * WAYS * SLOT_SIZE;
+    }
+
+    /** True if the deal holds each card exactly once. */
+    private static boolean complete(Deal deal) {
+        long seen = 0;
+        for (Direction dir : Direction.values()) {
+            long bits = deal.hand(dir).bits();
+            if ((bits & seen) != 0) return false;
+            seen |= bits;
+        }
+        return seen == FULL_DECK;
+    }
+
+    /** One of the two key words: the owners of cards 0-31 (word 0) or 32-51 (word 1). */
+    private static long key(Deal deal, int word) {
+        long key = 0;
+        for (Direction dir : Direction.values()) {
+            long bits = deal.hand(dir).bits();
+            long cards = word == 0 ? bits & 0xFFFFFFFFL : bits >>> 32;
+            for (long b = cards; b != 0; b &= b - 1) {
+                key |= (long) dir.index() << (Long.numberOfTrailingZeros(b) * 2);
+            }
+        }
+        return key;
+    }
+
+    private static DDTable unpack(long cells, long high) {
+        DDTable table = new DDTable();
+        for (int i = 0; i < CELLS; i++) {
+            long tricks = i < 16 ? cells >>> (i * 4) : high >>> ((i - 16) * 4);
+            table.set(Trump.values()[i / 4], Direction.fromIndex(i % 4), (int) tricks & 0xF);
+        }
+        return table;
+    }
+
+    private int bucket(long key0, long key1) {
+        long h = (key0 * 0x9E3779B97F4A7C15L ^ key1) * 0xFF51AFD7ED558CCDL;
+        return ((int) (h >>> 32) & bucketMask) * WAYS * SLOT_SIZE;
+    }
+
+    /** Never 0, so an all-zero slot is empty. */
+    private static long check(long word1, long word2, long word3) {
+        long h = word1 * 0x9E3779B97F4A7C15L ^ word2;
+        h = h * 0xFF51AFD7ED558CCDL ^ word3;
+        return h * 0xC4CEB9FE1A85EC53L | 1;
+    }
+}
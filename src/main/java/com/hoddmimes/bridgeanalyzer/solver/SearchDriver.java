@@ -0,0 +1,14 @@
+package com.hoddmimes.bridgeanalyzer.solver;
+
+/** How AlphaBetaSolver turns alpha-beta searches into an exact trick count. */
+public enum SearchDriver {
+    /** One search over the full window [0, tricks]. */
+    FULL_WINDOW,
+    /**
+     * MTD(f): zero-window probes, each at the value the last one returned,
+     * starting from an estimate of the result.
+     */
+    MTDF,
+    /** Zero-window probes bisecting the range of possible trick counts. */
+    BINARY
+}
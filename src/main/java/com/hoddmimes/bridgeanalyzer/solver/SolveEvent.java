@@ -0,0 +1,46 @@
+package com.hoddmimes.bridgeanalyzer.solver;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight-recorder event of one contract solved by {@link AlphaBetaSolver},
+ * with the main counters of its {@link SolverStats}. Record with
+ * {@code -XX:StartFlightRecording} and look for slow boards in JMC or with
+ * {@code jfr print --events com.hoddmimes.bridgeanalyzer.Solve}.
+ */
+@Name("com.hoddmimes.bridgeanalyzer.Solve")
+@Label("Double-Dummy Solve")
+@Category("BridgeAnalyzer")
+@Description("One contract solved by the alpha-beta solver")
+final class SolveEvent extends Event {
+    @Label("Strain")
+    String trump;
+
+    @Label("Declarer")
+    String declarer;
+
+    @Label("NS Tricks")
+    int nsTricks;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("TT Probes")
+    long ttProbes;
+
+    @Label("TT Hits")
+    long ttHits;
+
+    @Label("Bound Cutoffs")
+    long boundCutoffs;
+
+    @Label("Beta Cutoffs")
+    long cutoffs;
+
+    @Label("First-Move Cutoffs")
+    long firstMoveCutoffs;
+}
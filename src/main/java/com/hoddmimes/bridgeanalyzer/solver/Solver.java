@@ -1,10 +1,44 @@
 package com.hoddmimes.bridgeanalyzer.solver;
 
 import com.hoddmimes.bridgeanalyzer.game.Deal;
+import com.hoddmimes.bridgeanalyzer.game.GameState;
 import com.hoddmimes.bridgeanalyzer.model.Direction;
 import com.hoddmimes.bridgeanalyzer.model.Trump;
 
+/**
+ * Double-dummy solver. Implementations keep search state between calls and
+ * are not thread-safe; to solve from several threads use a solver per
+ * thread or a {@link SolverPool}.
+ */
 public interface Solver {
     /** Returns the number of tricks NS can take with optimal play from both sides. */
     int solve(Deal deal, Trump trump, Direction declarer);
+
+    /** Returns the declarer's tricks for every strain and declarer. */
+    default DDTable solveTable(Deal deal) {
+        DDTable table = new DDTable();
+        int total = deal.hand(Direction.NORTH).cardCount();
+        for (Trump trump : Trump.values()) {
+            for (Direction declarer : Direction.values()) {
+                int nsTricks = solve(deal, trump, declarer);
+                table.set(trump, declarer, declarer.isNS() ? nsTricks : total - nsTricks);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * NS tricks after each legal card of the player to move in the position,
+     * by card bit index, -1 for the cards that cannot be played.
+     *
+     * @throws UnsupportedOperationException if the solver only solves deals
+     */
+    default int[] solveAllMoves(GameState state) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not solve positions");
+    }
+
+    /** Search counters of the last solve() or solveTable() call, or null if the solver keeps none. */
+    default SolverStats lastStats() {
+        return null;
+    }
 }
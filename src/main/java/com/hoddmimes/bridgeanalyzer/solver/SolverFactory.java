@@ -1,10 +1,25 @@
 package com.hoddmimes.bridgeanalyzer.solver;
 
+/**
+ * Creates solvers by name. Each solver is for one thread at a time; see
+ * {@link SolverPool} for sharing a bounded set of them.
+ */
 public class SolverFactory {
     public static Solver create(String name) {
+        return create(name, TranspositionTable.DEFAULT_SIZE_MB);
+    }
+
+    public static Solver create(String name, int ttSizeMb) {
+        return create(name, ttSizeMb, 1);
+    }
+
+    /** @param searchThreads threads searching each deal, see AlphaBetaSolver */
+    public static Solver create(String name, int ttSizeMb, int searchThreads) {
         return switch (name.toLowerCase()) {
             case "bruteforce" -> new BruteForceSolver();
-            case "alphabeta" -> new AlphaBetaSolver();
+            case "alphabeta" -> new AlphaBetaSolver(ttSizeMb, false, searchThreads);
+            case "mtdf" -> new AlphaBetaSolver(ttSizeMb, false, searchThreads, SearchDriver.MTDF);
+            case "binary" -> new AlphaBetaSolver(ttSizeMb, false, searchThreads, SearchDriver.BINARY);
             default -> throw new IllegalArgumentException("Unknown solver: " + name);
         };
     }
@@ -0,0 +1,154 @@
+package com.hoddmimes.bridgeanalyzer.solver;
+
+import com.hoddmimes.bridgeanalyzer.game.Deal;
+import com.hoddmimes.bridgeanalyzer.game.GameState;
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+import com.hoddmimes.bridgeanalyzer.model.Trump;
+
+import java.io.Closeable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A fixed set of solvers that any number of threads may share. Each
+ * instance belongs to one worker thread, so no solver is used by two
+ * threads at once, and solves queue for the next free worker. Results come
+ * back as CompletableFutures. Cancelling a future drops a solve that has
+ * not started, and interrupts the worker of one that has; an
+ * AlphaBetaSolver then stops within a few thousand nodes. Closing the pool
+ * cancels every solve still pending.
+ *
+ * <p>A deal must not change until its future completes; positions are
+ * copied when submitted.
+ */
+public class SolverPool implements Closeable {
+    private final int instances;
+    private final ThreadPoolExecutor workers;
+    private final ThreadLocal<Solver> solver;
+
+    /**
+     * @param solverName a {@link SolverFactory} name
+     * @param memoryMb   transposition table memory of all instances
+     *                   together, split evenly between them
+     */
+    public SolverPool(String solverName, int instances, int memoryMb) {
+        this(instances, tables(solverName, instances, memoryMb));
+    }
+
+    /** @param solvers called once per instance, up front */
+    public SolverPool(int instances, Supplier<Solver> solvers) {
+        if (instances < 1) {
+            throw new IllegalArgumentException("Solver instances must be positive: " + instances);
+        }
+        this.instances = instances;
+        ConcurrentLinkedQueue<Solver> created = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < instances; i++) {
+            created.add(solvers.get());
+        }
+        // Each worker takes its own instance; the pool never replaces a worker
+        this.solver = ThreadLocal.withInitial(created::remove);
+        AtomicInteger workerId = new AtomicInteger();
+        ThreadFactory daemons = r -> {
+            Thread t = new Thread(r, "solver-pool-" + workerId.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        this.workers = new ThreadPoolExecutor(instances, instances, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), daemons);
+    }
+
+    private static Supplier<Solver> tables(String solverName, int instances, int memoryMb) {
+        if (instances < 1) {
+            throw new IllegalArgumentException("Solver instances must be positive: " + instances);
+        }
+        int ttSizeMb = memoryMb / instances;
+        if (ttSizeMb < 1) {
+            throw new IllegalArgumentException(
+                    String.format("%d MB is less than 1 MB per solver for %d solvers", memoryMb, instances));
+        }
+        return () -> SolverFactory.create(solverName, ttSizeMb);
+    }
+
+    public int instances() {
+        return instances;
+    }
+
+    /** Solves waiting for a worker. */
+    public int pending() {
+        return workers.getQueue().size();
+    }
+
+    /** NS tricks, see {@link Solver#solve}. */
+    public CompletableFuture<Integer> solveAsync(Deal deal, Trump trump, Direction declarer) {
+        return submit(s -> s.solve(deal, trump, declarer));
+    }
+
+    /** See {@link Solver#solveTable}. */
+    public CompletableFuture<DDTable> solveTableAsync(Deal deal) {
+        return submit(s -> s.solveTable(deal));
+    }
+
+    /** See {@link Solver#solveAllMoves}. */
+    public CompletableFuture<int[]> solveAllMovesAsync(GameState position) {
+        GameState copy = new GameState(position);
+        return submit(s -> s.solveAllMoves(copy));
+    }
+
+    /** Cancels the pending solves and interrupts the running ones. */
+    @Override
+    public void close() {
+        for (Runnable job : workers.shutdownNow()) {
+            ((Job<?>) job).cancel(false);
+        }
+    }
+
+    /** @throws java.util.concurrent.RejectedExecutionException if the pool is closed */
+    private <T> CompletableFuture<T> submit(Function<Solver, T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Job<T> job = new Job<>(() -> work.apply(solver.get()), result);
+        result.whenComplete((v, e) -> {
+            if (result.isCancelled()) job.cancel(true);
+        });
+        workers.execute(job);
+        return result;
+    }
+
+    /**
+     * A queued solve. FutureTask decides whether a cancel came before, during
+     * or after the run, and interrupts the worker only during it.
+     */
+    private static final class Job<T> extends FutureTask<T> {
+        private final CompletableFuture<T> result;
+
+        Job(Callable<T> work, CompletableFuture<T> result) {
+            super(work);
+            this.result = result;
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                result.cancel(false);
+                return;
+            }
+            try {
+                result.complete(get());
+            } catch (ExecutionException e) {
+                result.completeExceptionally(e.getCause());
+            } catch (InterruptedException e) {
+                // Not reached, the task is done
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
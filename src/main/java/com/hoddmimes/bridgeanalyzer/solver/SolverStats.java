@@ -0,0 +1,120 @@
+package com.hoddmimes.bridgeanalyzer.solver;
+
+/**
+ * Search counters of one solve, or of one table, filled in by
+ * {@link AlphaBetaSolver}: nodes per trick, transposition-table traffic,
+ * positions decided by the trick bounds, and the beta cutoffs by the
+ * position of the refuting move in the move ordering. A good ordering has
+ * nearly all cutoffs on the first move, so a board that takes much longer
+ * than the rest shows up here as more nodes in the middle tricks, a low
+ * TT hit rate or cutoffs on late moves.
+ */
+public final class SolverStats {
+    private static final int TRICKS = 13;
+
+    final long[] nodesByTrick = new long[TRICKS];
+    final long[] cutoffsByMove = new long[TRICKS];
+    long ttProbes;
+    long ttHits;
+    long ttCutoffs;
+    long ttCollisions;
+    long ttOverwrites;
+    long boundCutoffs;
+    long elapsedNanos;
+
+    /** Positions searched. */
+    public long nodes() {
+        long sum = 0;
+        for (long n : nodesByTrick) sum += n;
+        return sum;
+    }
+
+    /** Positions searched with the given number of tricks already played. */
+    public long nodes(int tricksPlayed) { return nodesByTrick[tricksPlayed]; }
+
+    /** Transposition-table lookups. */
+    public long ttProbes() { return ttProbes; }
+
+    /** Lookups that found an entry for the position. */
+    public long ttHits() { return ttHits; }
+
+    /** Hits whose bounds decided the position without a search. */
+    public long ttCutoffs() { return ttCutoffs; }
+
+    /** Stores into a bucket that held another position of the same shape. */
+    public long ttCollisions() { return ttCollisions; }
+
+    /** Stores that replaced a live entry of another position. */
+    public long ttOverwrites() { return ttOverwrites; }
+
+    /** Positions decided by the trick bounds (quick tricks) without a search. */
+    public long boundCutoffs() { return boundCutoffs; }
+
+    /** Beta cutoffs caused by the move at the given position (0 = first) of the move ordering. */
+    public long cutoffs(int moveIndex) { return cutoffsByMove[moveIndex]; }
+
+    /** All beta cutoffs of the move loop. */
+    public long cutoffs() {
+        long sum = 0;
+        for (long n : cutoffsByMove) sum += n;
+        return sum;
+    }
+
+    /** Wall-clock time of the solve. */
+    public long elapsedNanos() { return elapsedNanos; }
+
+    /** Add the counters of another solve to these. */
+    public void add(SolverStats other) {
+        for (int i = 0; i < TRICKS; i++) {
+            nodesByTrick[i] += other.nodesByTrick[i];
+            cutoffsByMove[i] += other.cutoffsByMove[i];
+        }
+        ttProbes += other.ttProbes;
+        ttHits += other.ttHits;
+        ttCutoffs += other.ttCutoffs;
+        ttCollisions += other.ttCollisions;
+        ttOverwrites += other.ttOverwrites;
+        boundCutoffs += other.boundCutoffs;
+        elapsedNanos += other.elapsedNanos;
+    }
+
+    void reset() {
+        java.util.Arrays.fill(nodesByTrick, 0);
+        java.util.Arrays.fill(cutoffsByMove, 0);
+        ttProbes = ttHits = ttCutoffs = ttCollisions = ttOverwrites = boundCutoffs = elapsedNanos = 0;
+    }
+
+    SolverStats copy() {
+        SolverStats copy = new SolverStats();
+        copy.add(this);
+        return copy;
+    }
+
+    /** A few lines for the command line's --stats output. */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        long nodes = nodes();
+        double seconds = elapsedNanos / 1e9;
+        out.append(String.format("Nodes: %,d in %.3f s (%,.0f/s)%n", nodes, seconds,
+                seconds > 0 ? nodes / seconds : 0.0));
+        out.append("  by trick:");
+        for (long n : nodesByTrick) out.append(' ').append(n);
+        out.append(System.lineSeparator());
+        out.append(String.format("TT: %,d probes, %.1f%% hits, %.1f%% cutoffs, %,d collisions, %,d overwrites%n",
+                ttProbes, percent(ttHits, ttProbes), percent(ttCutoffs, ttProbes), ttCollisions, ttOverwrites));
+        out.append(String.format("Bound cutoffs: %,d%n", boundCutoffs));
+        long cutoffs = cutoffs();
+        out.append(String.format("Beta cutoffs: %,d, by move:", cutoffs));
+        for (int i = 0; i < 3; i++) {
+            out.append(String.format(" %d: %.1f%%", i + 1, percent(cutoffsByMove[i], cutoffs)));
+        }
+        long later = cutoffs - cutoffsByMove[0] - cutoffsByMove[1] - cutoffsByMove[2];
+        out.append(String.format(" later: %.1f%%%n", percent(later, cutoffs)));
+        return out.toString();
+    }
+
+    private static double percent(long part, long whole) {
+        return whole == 0 ? 0.0 : 100.0 * part / whole;
+    }
+}
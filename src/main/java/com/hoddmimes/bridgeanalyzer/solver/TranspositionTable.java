@@ -0,0 +1,221 @@
+package com.hoddmimes.bridgeanalyzer.solver;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size transposition table backed by one primitive array.
+ *
+ * The table is split into buckets of {@link #WAYS} slots, selected by the
+ * 64-bit position hash. Entries are partition-search classes (see
+ * {@link PartitionKey}): a slot matches when the exact shape is equal and
+ * the position's owner words agree with the stored words on the cards the
+ * entry kept, so a hash collision can never hand back bounds that belong to
+ * another position. When a bucket is full the slot with the smallest
+ * searched subtree (ties: fewest tricks remaining) is replaced.
+ *
+ * Positions in the middle of a trick carry a trick key as well (see
+ * {@link PartitionKey#trickKey}), which must be equal for a match.
+ *
+ * A slot is four longs: a check word, the two owner words and a data word
+ * (bounds, kept cards per suit, best move, trick key, subtree size, depth
+ * and generation stamp).
+ * The check word is the shape XOR a mix of the other three, so a reader
+ * that sees a slot half-written by another thread recomputes a different
+ * shape and takes it as a miss. This makes the table safe to share between
+ * search threads without locks; a lost update only loses information.
+ *
+ * All memory is allocated up front; clear() just advances a generation
+ * stamp, so solving many deals in a row does not allocate or re-fill the
+ * array.
+ */
+public class TranspositionTable {
+    public static final int DEFAULT_SIZE_MB = 64;
+
+    private static final int WAYS = 8;
+    // check word + 2 owner words + data word
+    private static final int LONGS_PER_SLOT = 4;
+    private static final int BYTES_PER_SLOT = 8 * LONGS_PER_SLOT;
+
+    /** Flag returned by store(): a live entry of another class was replaced. */
+    public static final int STORE_EVICTED = 1;
+    /** Flag returned by store(): the bucket held another class with the same shape. */
+    public static final int STORE_COLLIDED = 2;
+
+    /** Best-move code for "none", see {@link PartitionKey#encodeMove}. */
+    public static final int NO_MOVE = 0x3F;
+
+    // Data word: log2 of the subtree size, trick key, best move, depth, lower, upper,
+    // kept cards per suit, stamp
+    private static final int WORK_BITS = 6;
+    private static final int TRICK_SHIFT = 6;
+    private static final long TRICK_BITS = 0x3FFL << TRICK_SHIFT;
+    private static final int MOVE_SHIFT = 22;
+    private static final int DEPTH_SHIFT = 28;
+    private static final int LOWER_SHIFT = 32;
+    private static final int UPPER_SHIFT = 36;
+    private static final int KEPT_SHIFT = 40;
+    private static final int STAMP_SHIFT = 56;
+
+    private final long[] slots;
+    private final int bucketMask;
+    private int generation = 1;
+
+    public TranspositionTable() {
+        this(DEFAULT_SIZE_MB);
+    }
+
+    public TranspositionTable(int sizeMb) {
+        if (sizeMb <= 0) {
+            throw new IllegalArgumentException("Transposition table size must be positive: " + sizeMb);
+        }
+        long size = ((long) sizeMb << 20) / BYTES_PER_SLOT;
+        int buckets = Integer.highestOneBit((int) Math.min(size / WAYS, 1 << 25));
+        buckets = Math.max(buckets, 1);
+
+        slots = new long[buckets * WAYS * LONGS_PER_SLOT];
+        bucketMask = buckets - 1;
+    }
+
+    public int capacity() { return slots.length / LONGS_PER_SLOT; }
+
+    /**
+     * Forget all entries. Constant time except once every 255 calls. Must not
+     * run while another thread uses the table.
+     */
+    public void clear() {
+        generation++;
+        if (generation == 256) {
+            Arrays.fill(slots, 0L);
+            generation = 1;
+        }
+    }
+
+    /**
+     * Returns the data word of a class that contains the position, or 0 if
+     * there is none; read it with {@link #lower}, {@link #upper} and
+     * {@link #kept}. The owner words are the position's full words from
+     * {@code GameState.rankOwners()}.
+     */
+    public long lookup(long hash, long shape, long owners0, long owners1) {
+        return lookup(hash, shape, 0, owners0, owners1);
+    }
+
+    /** As {@link #lookup(long, long, long, long)}, for a position with the given trick key. */
+    public long lookup(long hash, long shape, int trick, long owners0, long owners1) {
+        int base = bucket(hash);
+        for (int at = base; at < base + WAYS * LONGS_PER_SLOT; at += LONGS_PER_SLOT) {
+            long data = slots[at + 3];
+            if (stamp(data) != generation) break;
+            long lock0 = slots[at + 1];
+            long lock1 = slots[at + 2];
+            if ((slots[at] ^ check(lock0, lock1, data)) == shape && trick(data) == trick
+                    && PartitionKey.matches(lock0, owners0) && PartitionKey.matches(lock1, owners1)) {
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Store bounds for the class. The owner words are reduced ones from
+     * {@link PartitionKey#keepRelevant}; if the identical class is stored
+     * already, the bounds are intersected with the stored ones.
+     *
+     * @param depth tricks remaining in the position (&gt; 0)
+     * @param nodes size of the subtree searched to produce the bounds
+     * @param move  best move code from {@link PartitionKey#encodeMove}, or
+     *              {@link #NO_MOVE} to keep a stored one
+     * @return {@link #STORE_EVICTED} and {@link #STORE_COLLIDED} flags, for statistics
+     */
+    public int store(long hash, long shape, long lock0, long lock1, int depth, long nodes, int lower, int upper,
+                     int move) {
+        return store(hash, shape, 0, lock0, lock1, depth, nodes, lower, upper, move);
+    }
+
+    /** As {@link #store(long, long, long, long, int, long, int, int, int)}, for a position with the given trick key. */
+    public int store(long hash, long shape, int trick, long lock0, long lock1, int depth, long nodes, int lower,
+                     int upper, int move) {
+        int base = bucket(hash);
+        int work = log2(nodes);
+        int victim = -1;
+        long victimData = 0;
+        int flags = 0;
+        for (int at = base; at < base + WAYS * LONGS_PER_SLOT; at += LONGS_PER_SLOT) {
+            long data = slots[at + 3];
+            if (stamp(data) != generation) {
+                victim = at;
+                victimData = 0;
+                break;
+            }
+            if (slots[at + 1] == lock0 && slots[at + 2] == lock1 && trick(data) == trick
+                    && (slots[at] ^ check(lock0, lock1, data)) == shape) {
+                int stored = work(data);
+                write(at, shape, trick, lock0, lock1, Math.max(depth, depth(data)),
+                        Math.max(work, stored) + (work == stored ? 1 : 0),
+                        Math.max(lower, lower(data)), Math.min(upper, upper(data)),
+                        move != NO_MOVE ? move : move(data));
+                return flags;
+            }
+            if ((slots[at] ^ check(slots[at + 1], slots[at + 2], data)) == shape) {
+                flags |= STORE_COLLIDED;
+            }
+            if (victim < 0 || work(data) < work(victimData)
+                    || (work(data) == work(victimData) && depth(data) < depth(victimData))) {
+                victim = at;
+                victimData = data;
+            }
+        }
+        if (victimData != 0) flags |= STORE_EVICTED;
+        write(victim, shape, trick, lock0, lock1, depth, work, lower, upper, move);
+        return flags;
+    }
+
+    /** Lower bound of a data word from {@link #lookup}. */
+    public static int lower(long data) { return (int) (data >>> LOWER_SHIFT) & 0xF; }
+
+    /** Upper bound of a data word from {@link #lookup}. */
+    public static int upper(long data) { return (int) (data >>> UPPER_SHIFT) & 0xF; }
+
+    /** Best-move code of a data word from {@link #lookup}, or {@link #NO_MOVE}. */
+    public static int move(long data) { return (int) (data >>> MOVE_SHIFT) & 0x3F; }
+
+    /** Approximate size of the subtree searched for the data word from {@link #lookup}. */
+    public static long nodes(long data) { return 1L << work(data) >> 1; }
+
+    /** Cards kept per suit by the entry, 4 bits per suit, see {@link PartitionKey#keptCards}. */
+    public static int kept(long data) { return (int) (data >>> KEPT_SHIFT) & 0xFFFF; }
+
+    private void write(int at, long shape, int trick, long lock0, long lock1, int depth, int work, int lower,
+                       int upper, int move) {
+        long data = Math.min(work, (1 << WORK_BITS) - 1)
+                | (long) trick << TRICK_SHIFT
+                | (long) move << MOVE_SHIFT
+                | (long) depth << DEPTH_SHIFT
+                | (long) lower << LOWER_SHIFT
+                | (long) upper << UPPER_SHIFT
+                | (long) PartitionKey.keptCounts(lock0, lock1) << KEPT_SHIFT
+                | (long) generation << STAMP_SHIFT;
+        slots[at + 1] = lock0;
+        slots[at + 2] = lock1;
+        slots[at + 3] = data;
+        slots[at] = shape ^ check(lock0, lock1, data);
+    }
+
+    private int bucket(long hash) {
+        return ((int) (hash ^ (hash >>> 32)) & bucketMask) * WAYS * LONGS_PER_SLOT;
+    }
+
+    private static long check(long lock0, long lock1, long data) {
+        long h = lock0 * 0x9E3779B97F4A7C15L ^ lock1;
+        h = h * 0xFF51AFD7ED558CCDL ^ data;
+        return h * 0xC4CEB9FE1A85EC53L;
+    }
+
+    private static int stamp(long data) { return (int) (data >>> STAMP_SHIFT); }
+    private static int depth(long data) { return (int) (data >>> DEPTH_SHIFT) & 0xF; }
+    private static int work(long data) { return (int) data & ((1 << WORK_BITS) - 1); }
+    private static int trick(long data) { return (int) ((data & TRICK_BITS) >>> TRICK_SHIFT); }
+
+    /** Subtree sizes are kept as their bit length, enough to tell big subtrees from small. */
+    private static int log2(long nodes) { return 64 - Long.numberOfLeadingZeros(nodes); }
+}
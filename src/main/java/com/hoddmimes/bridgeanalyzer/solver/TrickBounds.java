@@ -0,0 +1,162 @@
+package com.hoddmimes.bridgeanalyzer.solver;
+
+import com.hoddmimes.bridgeanalyzer.game.GameState;
+
+/**
+ * Lower and upper bounds on the tricks the side on lead takes from a
+ * trick-boundary position, with the cards each bound depends on.
+ *
+ * The lower bound is the best of three plans for the side on lead:
+ * <ul>
+ * <li>the leader cashes its own winners, see {@link #cashable};</li>
+ * <li>the leader crosses to partner's top card in a suit and partner
+ *     cashes its winners;</li>
+ * <li>the top trumps held by one hand, which win whenever they are played.</li>
+ * </ul>
+ * The upper bound is the tricks left minus the defenders' top trumps.
+ *
+ * Every bound only relies on which hand holds the top cards of a suit and
+ * on suit lengths, and it can only grow when a hand holds more top cards.
+ * So it holds for every position of a partition class that keeps the
+ * returned cards (the shape is part of every class key).
+ */
+final class TrickBounds {
+    private static final long SUIT_MASK = 0x1FFFL;
+
+    private final long[] hands = new long[4];
+    private final long[] after = new long[4];
+    private int trump;
+    // Winners used by the last cashable() call
+    private long cashed;
+
+    /** Minimum tricks of the side on lead, and the cards it depends on. */
+    int leadMin;
+    long leadMinCards;
+    /** Maximum tricks of the side on lead, and the cards it depends on. */
+    int leadMax;
+    long leadMaxCards;
+
+    void compute(GameState state) {
+        trump = state.trump().suitIndex();
+        int leader = state.nextPlayerIndex();
+        for (int i = 0; i < 4; i++) {
+            hands[i] = state.handBits(i);
+        }
+        int tricks = Long.bitCount(hands[leader]);
+
+        leadMin = cashable(hands, leader);
+        leadMinCards = cashed;
+
+        // Cross to partner's top card, then partner cashes
+        int partner = leader ^ 2;
+        long all = hands[0] | hands[1] | hands[2] | hands[3];
+        for (int suit = 0; suit < 4; suit++) {
+            long top = Long.highestOneBit(suitBits(all, suit)) << (suit * 13);
+            if (top == 0 || (hands[partner] & top) == 0 || suitBits(hands[leader], suit) == 0) continue;
+            if (ruffable(hands, leader, suit, 1)) continue;
+
+            for (int i = 0; i < 4; i++) {
+                long cards = suitBits(hands[i], suit);
+                long played = i == partner ? top : Long.lowestOneBit(cards) << (suit * 13);
+                after[i] = hands[i] & ~played;
+            }
+            int t = 1 + cashable(after, partner);
+            if (t > leadMin) {
+                leadMin = t;
+                leadMinCards = cashed | top;
+            }
+        }
+
+        long ownTrumps = topTrumps(leader);
+        if (Long.bitCount(ownTrumps) > leadMin) {
+            leadMin = Long.bitCount(ownTrumps);
+            leadMinCards = ownTrumps;
+        }
+        leadMin = Math.min(leadMin, tricks);
+
+        long theirTrumps = topTrumps(leader + 1);
+        leadMax = tricks - Long.bitCount(theirTrumps);
+        leadMaxCards = theirTrumps;
+    }
+
+    /**
+     * Tricks the hand on lead wins with its own winners, keeping the lead
+     * throughout; the winners used are left in {@link #cashed}.
+     *
+     * Top trumps are cashed first; if they are as many as the longest
+     * trump holding of the opponents, the opponents can never ruff. Until
+     * then a side suit counts only as many rounds as every opponent with a
+     * trump can follow. A suit where the top cards outlast the opponents'
+     * and partner's cards is run to its end. Partner must never be forced
+     * to ruff a winner, which would move the lead: side-suit rounds are
+     * capped at partner's non-trump cards when partner holds a trump.
+     */
+    private int cashable(long[] h, int x) {
+        int y = x ^ 2;
+        long all = h[0] | h[1] | h[2] | h[3];
+        long opp1 = h[(x + 1) & 3], opp2 = h[(x + 3) & 3];
+        cashed = 0;
+
+        boolean drawn = true;
+        if (trump >= 0) {
+            int oppTrumps = Math.max(Long.bitCount(suitBits(opp1, trump)), Long.bitCount(suitBits(opp2, trump)));
+            drawn = Long.bitCount(topRun(h[x], all, trump)) >= oppTrumps;
+        }
+
+        int tricks = 0, sideRounds = 0;
+        for (int suit = 0; suit < 4; suit++) {
+            long run = topRun(h[x], all, suit);
+            int k = Long.bitCount(run);
+            if (k == 0) continue;
+            cashed |= run << (suit * 13);
+
+            int w;
+            int oppMax = Math.max(Long.bitCount(suitBits(opp1, suit)), Long.bitCount(suitBits(opp2, suit)));
+            if (suit == trump || drawn) {
+                boolean runsOut = k >= oppMax && k >= Long.bitCount(suitBits(h[y], suit));
+                w = runsOut ? Long.bitCount(suitBits(h[x], suit)) : k;
+            } else {
+                w = k;
+                if (suitBits(opp1, trump) != 0) w = Math.min(w, Long.bitCount(suitBits(opp1, suit)));
+                if (suitBits(opp2, trump) != 0) w = Math.min(w, Long.bitCount(suitBits(opp2, suit)));
+            }
+            tricks += w;
+            if (suit != trump) sideRounds += w;
+        }
+        if (trump >= 0 && suitBits(h[y], trump) != 0) {
+            int discards = Long.bitCount(h[y]) - Long.bitCount(suitBits(h[y], trump));
+            if (sideRounds > discards) tricks -= sideRounds - discards;
+        }
+        return tricks;
+    }
+
+    /** True if an opponent of the leader could ruff the given round of the suit. */
+    private boolean ruffable(long[] h, int leader, int suit, int round) {
+        if (trump < 0 || suit == trump) return false;
+        for (int opp = leader + 1; opp <= leader + 3; opp += 2) {
+            long cards = h[opp & 3];
+            if (Long.bitCount(suitBits(cards, suit)) < round && suitBits(cards, trump) != 0) return true;
+        }
+        return false;
+    }
+
+    /** Top trumps of the player's side held by one hand, as a card mask. */
+    private long topTrumps(int player) {
+        if (trump < 0) return 0;
+        long all = hands[0] | hands[1] | hands[2] | hands[3];
+        long run = topRun(hands[player & 3], all, trump);
+        if (run == 0) run = topRun(hands[(player + 2) & 3], all, trump);
+        return run << (trump * 13);
+    }
+
+    /** The hand's consecutive top cards of the suit, suit-relative. */
+    private static long topRun(long hand, long all, int suit) {
+        long mine = suitBits(hand, suit);
+        long others = suitBits(all, suit) & ~mine;
+        return others == 0 ? mine : mine & -(Long.highestOneBit(others) << 1);
+    }
+
+    private static long suitBits(long cards, int suit) {
+        return (cards >>> (suit * 13)) & SUIT_MASK;
+    }
+}
@@ -0,0 +1,45 @@
+package com.hoddmimes.bridgeanalyzer;
+
+import com.hoddmimes.bridgeanalyzer.cli.BatchRunner;
+import com.hoddmimes.bridgeanalyzer.game.Deal;
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+import com.hoddmimes.bridgeanalyzer.model.Trump;
+import com.hoddmimes.bridgeanalyzer.solver.AlphaBetaSolver;
+import com.hoddmimes.bridgeanalyzer.solver.Solver;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRunnerTest {
+
+    private static String format(Deal deal, Solver solver) {
+        return deal.boardNumber() + ":" + solver.solve(deal, Trump.NO_TRUMP, Direction.NORTH) + "\n";
+    }
+
+    @Test
+    void outputStaysInBoardOrder() throws Exception {
+        Random rnd = new Random(31L);
+        List<Deal> deals = new ArrayList<>();
+        for (int i = 1; i <= 60; i++) {
+            Deal deal = SolverTest.randomDeal(rnd, 3 + i % 4);
+            deal.setBoardNumber(i);
+            deals.add(deal);
+        }
+
+        StringBuilder expected = new StringBuilder();
+        Solver solver = new AlphaBetaSolver(1);
+        for (Deal deal : deals) {
+            expected.append(format(deal, solver));
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BatchRunner.run(deals, 4, () -> new AlphaBetaSolver(1), BatchRunnerTest::format, new PrintStream(bytes));
+        assertEquals(expected.toString(), bytes.toString());
+    }
+}
@@ -0,0 +1,103 @@
+package com.hoddmimes.bridgeanalyzer;
+
+import com.hoddmimes.bridgeanalyzer.cli.DealFile;
+import com.hoddmimes.bridgeanalyzer.cli.DealGenerator;
+import com.hoddmimes.bridgeanalyzer.cli.LinParser;
+import com.hoddmimes.bridgeanalyzer.game.Deal;
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DealFileTest {
+
+    @Test
+    void convertKeepsTheDeals() throws IOException {
+        Path lin = Path.of("Opening1M.lin");
+        Path bin = tempFile();
+        List<Deal> expected = LinParser.parseFile(lin.toString());
+
+        assertEquals(expected.size(), DealFile.convert(lin, bin));
+        assertTrue(DealFile.isDealFile(bin));
+        assertFalse(DealFile.isDealFile(lin));
+        assertEquals(DealFile.offset(expected.size()), Files.size(bin));
+
+        try (DealFile file = DealFile.open(bin)) {
+            assertEquals(expected.size(), file.size());
+            long[] hands = new long[4];
+            for (int i = 0; i < expected.size(); i++) {
+                Deal want = expected.get(i);
+                Deal got = file.deal(i);
+                assertEquals(want.boardNumber(), got.boardNumber());
+                assertEquals(want.dealer(), got.dealer());
+                assertEquals(want.vulnerability(), got.vulnerability());
+                file.hands(i, hands);
+                for (Direction dir : Direction.values()) {
+                    assertEquals(want.hand(dir).bits(), got.hand(dir).bits());
+                    assertEquals(want.hand(dir).bits(), hands[dir.index()]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void parallelStreamKeepsOrder() throws IOException {
+        Random random = new Random(7);
+        List<Deal> deals = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Deal deal = DealGenerator.generate(random);
+            deal.setBoardNumber(i + 1);
+            deals.add(deal);
+        }
+        Path bin = tempFile();
+        DealFile.write(deals, bin);
+
+        List<Deal> read;
+        try (Stream<Deal> stream = DealFile.stream(bin)) {
+            read = stream.parallel().collect(Collectors.toList());
+        }
+        assertEquals(deals.size(), read.size());
+        for (int i = 0; i < deals.size(); i++) {
+            assertEquals(i + 1, read.get(i).boardNumber());
+            assertEquals(deals.get(i).hand(Direction.WEST).bits(), read.get(i).hand(Direction.WEST).bits());
+        }
+    }
+
+    @Test
+    void keepsLargeBoardNumbersAndOnlyReplacesOnSuccess() throws IOException {
+        Random random = new Random(11);
+        Deal big = DealGenerator.generate(random);
+        big.setBoardNumber(70_000);
+        Path bin = tempFile();
+        DealFile.write(List.of(big), bin);
+        byte[] written = Files.readAllBytes(bin);
+        try (DealFile file = DealFile.open(bin)) {
+            assertEquals(70_000, file.boardNumber(0));
+        }
+
+        Deal broken = new Deal();
+        assertThrows(RuntimeException.class, () -> DealFile.write(List.of(big, broken), bin));
+        assertArrayEquals(written, Files.readAllBytes(bin));
+        assertFalse(Files.exists(bin.resolveSibling(bin.getFileName() + ".tmp")));
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        assertThrows(IOException.class, () -> DealFile.open(Path.of("Opening1M.lin")));
+    }
+
+    private static Path tempFile() throws IOException {
+        Path file = Files.createTempFile("deals", ".bdl");
+        file.toFile().deleteOnExit();
+        return file;
+    }
+}
@@ -0,0 +1,75 @@
+package com.hoddmimes.bridgeanalyzer;
+
+import com.hoddmimes.bridgeanalyzer.cli.DealGenerator;
+import com.hoddmimes.bridgeanalyzer.cli.HandConstraint;
+import com.hoddmimes.bridgeanalyzer.game.Deal;
+import com.hoddmimes.bridgeanalyzer.model.Card;
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+import com.hoddmimes.bridgeanalyzer.model.Rank;
+import com.hoddmimes.bridgeanalyzer.model.Suit;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DealGeneratorTest {
+
+    @Test
+    void dealsAreCompleteAndReproducible() {
+        long[] a = new long[4], b = new long[4];
+        DealGenerator first = new DealGenerator(42), second = new DealGenerator(42);
+        for (int i = 0; i < 1000; i++) {
+            first.next(a);
+            second.next(b);
+            assertArrayEquals(a, b);
+            assertEquals((1L << 52) - 1, a[0] | a[1] | a[2] | a[3]);
+            for (long hand : a) {
+                assertEquals(13, Long.bitCount(hand));
+            }
+        }
+    }
+
+    @Test
+    void constraintsHold() {
+        HandConstraint notrump = HandConstraint.parse("hcp=15-17,S=2-4,H=2-4,D=2-5,C=2-5");
+        HandConstraint spades = new HandConstraint().length(Suit.SPADES, 6, 13)
+                .cards(Card.of(Suit.SPADES, Rank.ACE), Card.of(Suit.HEARTS, Rank.KING));
+        DealGenerator generator = new DealGenerator(7)
+                .constrain(Direction.NORTH, notrump)
+                .constrain(Direction.WEST, spades);
+        long[] hands = new long[4];
+        for (int i = 0; i < 500; i++) {
+            generator.next(hands);
+            int hcp = HandConstraint.points(hands[Direction.NORTH.index()]);
+            assertTrue(hcp >= 15 && hcp <= 17);
+            assertTrue(notrump.accepts(hands[Direction.NORTH.index()]));
+            assertTrue(spades.accepts(hands[Direction.WEST.index()]));
+            assertEquals((1L << 52) - 1, hands[0] | hands[1] | hands[2] | hands[3]);
+        }
+        assertTrue(generator.attempts() > 500);
+    }
+
+    @Test
+    void parallelStreamGivesTheSameDeals() {
+        DealGenerator generator = new DealGenerator(11)
+                .constrain(Direction.SOUTH, new HandConstraint().hcp(12, 37));
+        List<Long> sequential = generator.stream(10_000).map(DealGeneratorTest::key).collect(Collectors.toList());
+        List<Long> parallel = generator.stream(10_000).parallel().map(DealGeneratorTest::key)
+                .collect(Collectors.toList());
+        assertEquals(10_000, sequential.size());
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    void givenCardsMustFit() {
+        HandConstraint ace = new HandConstraint().cards(Card.of(Suit.CLUBS, Rank.ACE));
+        DealGenerator generator = new DealGenerator(1).constrain(Direction.NORTH, ace);
+        assertThrows(IllegalArgumentException.class, () -> generator.constrain(Direction.EAST, ace));
+    }
+
+    private static long key(Deal deal) {
+        return deal.boardNumber() * 31L + deal.hand(Direction.NORTH).bits() * 17 + deal.hand(Direction.EAST).bits();
+    }
+}
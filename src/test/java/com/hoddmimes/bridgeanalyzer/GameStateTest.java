@@ -0,0 +1,95 @@
+package com.hoddmimes.bridgeanalyzer;
+
+import com.hoddmimes.bridgeanalyzer.game.Deal;
+import com.hoddmimes.bridgeanalyzer.game.GameState;
+import com.hoddmimes.bridgeanalyzer.game.Hand;
+import com.hoddmimes.bridgeanalyzer.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameStateTest {
+
+    private static Deal remainingDeal(GameState state) {
+        Deal deal = new Deal();
+        for (Direction dir : Direction.values()) {
+            deal.setHand(dir, new Hand(state.handBits(dir)));
+        }
+        return deal;
+    }
+
+    /** A fresh state for the same hands with the same player on lead. */
+    private static GameState rebuilt(GameState state) {
+        Direction declarer = Direction.fromIndex((state.nextPlayer().index() + 3) % 4);
+        return new GameState(remainingDeal(state), state.trump(), declarer);
+    }
+
+    @Test
+    void incrementalKeysMatchRebuiltPosition() {
+        Random rnd = new Random(4711L);
+        Card[] moves = new Card[13];
+        for (int n = 0; n < 20; n++) {
+            GameState state = new GameState(SolverTest.randomDeal(rnd, 13), Trump.SPADES, Direction.SOUTH);
+            int[] undo = new int[52];
+            Card[] played = new Card[52];
+
+            int depth = 0;
+            while (!state.isTerminal()) {
+                int count = state.fillLegalMoves(moves);
+                played[depth] = moves[rnd.nextInt(count)];
+                undo[depth] = state.playCardFast(played[depth]);
+                depth++;
+                if (state.currentTrick().count() == 0 && !state.isTerminal()) {
+                    GameState fresh = rebuilt(state);
+                    assertEquals(fresh.shape(), state.shape());
+                    assertEquals(fresh.rankOwners(0), state.rankOwners(0));
+                    assertEquals(fresh.rankOwners(1), state.rankOwners(1));
+                }
+            }
+            while (depth > 0) {
+                depth--;
+                state.undoCardFast(played[depth], undo[depth]);
+            }
+            GameState start = rebuilt(state);
+            assertEquals(start.shape(), state.shape());
+            assertEquals(start.rankOwners(0), state.rankOwners(0));
+            assertEquals(start.rankOwners(1), state.rankOwners(1));
+        }
+    }
+
+    private static long mask(Card... cards) {
+        long m = 0;
+        for (Card c : cards) m |= c.bitMask();
+        return m;
+    }
+
+    @Test
+    void reducedMovesKeepTheTopOfEachSequence() {
+        // N: SA SK SQ S9 S8 H2   E: SJ S2 H3 ...   S and W small cards
+        Deal deal = new Deal();
+        deal.setHand(Direction.NORTH, new Hand(mask(Card.of(Suit.SPADES, Rank.ACE), Card.of(Suit.SPADES, Rank.KING),
+                Card.of(Suit.SPADES, Rank.QUEEN), Card.of(Suit.SPADES, Rank.NINE), Card.of(Suit.SPADES, Rank.EIGHT),
+                Card.of(Suit.HEARTS, Rank.TWO))));
+        deal.setHand(Direction.EAST, new Hand(mask(Card.of(Suit.SPADES, Rank.JACK), Card.of(Suit.SPADES, Rank.TWO),
+                Card.of(Suit.HEARTS, Rank.THREE), Card.of(Suit.HEARTS, Rank.FOUR), Card.of(Suit.HEARTS, Rank.FIVE),
+                Card.of(Suit.HEARTS, Rank.SIX))));
+        deal.setHand(Direction.SOUTH, new Hand(mask(Card.of(Suit.CLUBS, Rank.TWO), Card.of(Suit.CLUBS, Rank.THREE),
+                Card.of(Suit.CLUBS, Rank.FOUR), Card.of(Suit.CLUBS, Rank.FIVE), Card.of(Suit.CLUBS, Rank.SIX),
+                Card.of(Suit.CLUBS, Rank.SEVEN))));
+        deal.setHand(Direction.WEST, new Hand(mask(Card.of(Suit.DIAMONDS, Rank.TWO), Card.of(Suit.DIAMONDS, Rank.THREE),
+                Card.of(Suit.DIAMONDS, Rank.FOUR), Card.of(Suit.DIAMONDS, Rank.FIVE), Card.of(Suit.DIAMONDS, Rank.SIX),
+                Card.of(Suit.DIAMONDS, Rank.SEVEN))));
+
+        GameState state = new GameState(deal, Trump.NO_TRUMP, Direction.WEST);
+        assertEquals(deal.hand(Direction.NORTH).bits(), state.legalMoveMask());
+        assertEquals(mask(Card.of(Suit.SPADES, Rank.ACE), Card.of(Suit.SPADES, Rank.NINE),
+                Card.of(Suit.HEARTS, Rank.TWO)), state.reducedMoveMask());
+
+        // East must follow; North's nine and the eight on the table split East's jack and two
+        state.playCard(Card.of(Suit.SPADES, Rank.EIGHT));
+        assertEquals(mask(Card.of(Suit.SPADES, Rank.JACK), Card.of(Suit.SPADES, Rank.TWO)), state.legalMoveMask());
+        assertEquals(state.legalMoveMask(), state.reducedMoveMask());
+    }
+}
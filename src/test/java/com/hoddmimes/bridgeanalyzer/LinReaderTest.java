@@ -0,0 +1,146 @@
+package com.hoddmimes.bridgeanalyzer;
+
+import com.hoddmimes.bridgeanalyzer.cli.LinParser;
+import com.hoddmimes.bridgeanalyzer.cli.LinReader;
+import com.hoddmimes.bridgeanalyzer.game.Deal;
+import com.hoddmimes.bridgeanalyzer.game.PlayRecord;
+import com.hoddmimes.bridgeanalyzer.model.Card;
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+import com.hoddmimes.bridgeanalyzer.model.Rank;
+import com.hoddmimes.bridgeanalyzer.model.Suit;
+import com.hoddmimes.bridgeanalyzer.model.Trump;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinReaderTest {
+    private static final String LINE1 =
+            "qx|o1|md|3SA74HKJ975DT8C842,ST853HT4DJ9CAKQJ5,SKQJ9HQ862DQ54C97|rh||ah|Bricka 1|sv|0|pg||";
+    private static final String LINE2 =
+            "qx|o2|md|4SKQJ9HQ862DQ54C97,SA74HKJ975DT8C842,ST853HT4DJ9CAKQJ5|rh||ah|Bricka 2|sv|n|pg||";
+    // No board number in qx
+    private static final String LINE3 =
+            "qx|c|md|1ST853HT4DJ9CAKQJ5,SKQJ9HQ862DQ54C97,SA74HKJ975DT8C842|ah|Bricka 3|sv|b|";
+
+    @Test
+    void streamsTheDealsOfTheLines() throws IOException {
+        Path file = write(LINE1 + "\n\n" + LINE2 + "\r\n" + "pn|x,y|\n" + LINE3, false);
+        List<Deal> deals = read(file);
+
+        assertEquals(3, deals.size());
+        assertEquals(describe(LinParser.parseLine(LINE1)), describe(deals.get(0)));
+        assertEquals(describe(LinParser.parseLine(LINE2)), describe(deals.get(1)));
+        assertEquals("Bricka 2", deals.get(1).boardName());
+        assertEquals("n", deals.get(1).vulnerability());
+        assertEquals(Direction.EAST, deals.get(1).dealer());
+        // Numbered by position when qx has no number
+        assertEquals(3, deals.get(2).boardNumber());
+        assertEquals(Direction.SOUTH, deals.get(2).dealer());
+    }
+
+    @Test
+    void readsTheAuctionAndPlay() {
+        Deal deal = LinParser.parseLine(LINE1 + "mb|p|mb|1H!|an|5+ hearts|mb|2C|mb|2H|mb|p|mb|4H|mb|X|mb|p|mb|p|mb|p|"
+                + "pc|C2|pc|ca|pc|C4|pc|C7|pc|S3|mc|9|");
+        PlayRecord record = deal.playRecord();
+        assertEquals(List.of("P", "1H", "2C", "2H", "P", "4H", "D", "P", "P", "P"), record.bids());
+        assertEquals(4, record.level());
+        assertEquals(Trump.HEARTS, record.trump());
+        assertEquals(1, record.doubled());
+        assertEquals(Direction.EAST, record.declarer(deal.dealer()));
+        assertEquals(5, record.cardCount());
+        assertEquals(Card.of(Suit.CLUBS, Rank.ACE).bitIndex(), record.card(1));
+        assertEquals(Card.of(Suit.SPADES, Rank.THREE).bitIndex(), record.card(4));
+        assertEquals(9, record.claim());
+
+        assertNull(LinParser.parseLine(LINE1).playRecord());
+        PlayRecord passed = LinParser.parseLine(LINE1 + "mb|p|mb|p|mb|p|mb|p|").playRecord();
+        assertNull(passed.trump());
+        assertEquals(0, passed.level());
+    }
+
+    @Test
+    void badPlayTagsDropOnlyThePlayRecord() throws IOException {
+        String badCard = LINE1 + "mb|1S|mb|p|mb|p|mb|p|pc|S1|pc|HA|";
+        String badBid = LINE2 + "mb|1NT?|mb|p|pc|SA|";
+        Path file = write(badCard + "\n" + badBid + "\n" + LINE3 + "mb|p|mb|p|mb|p|mb|p|", false);
+        List<Deal> deals = read(file);
+
+        assertEquals(3, deals.size());
+        assertEquals(describe(LinParser.parseLine(LINE1)), describe(deals.get(0)));
+        assertNull(deals.get(0).playRecord());
+        assertEquals(describe(LinParser.parseLine(LINE2)), describe(deals.get(1)));
+        assertNull(deals.get(1).playRecord());
+        assertEquals(4, deals.get(2).playRecord().bids().size());
+        assertNull(LinParser.parseLine(LINE1 + "mc|nine|").playRecord());
+    }
+
+    @Test
+    void readsGzipFiles() throws IOException {
+        String text = LINE1 + "\n" + LINE2 + "\n" + LINE3 + "\n";
+        List<Deal> plain = read(write(text, false));
+        List<Deal> gzip = read(write(text, true));
+
+        assertEquals(plain.stream().map(LinReaderTest::describe).toList(),
+                gzip.stream().map(LinReaderTest::describe).toList());
+    }
+
+    @Test
+    void parallelStreamSplitsAtLines() throws IOException {
+        StringBuilder text = new StringBuilder();
+        String[] lines = {LINE1, LINE2, LINE3};
+        int count = 3000;
+        for (int i = 0; i < count; i++) {
+            text.append(lines[i % 3].replaceFirst("qx\\|[oc]\\d*", "qx|o" + (i + 1))).append('\n');
+        }
+        Path file = write(text.toString(), false);
+
+        List<Deal> sequential = read(file);
+        List<Deal> parallel;
+        try (Stream<Deal> deals = LinReader.stream(file)) {
+            parallel = deals.parallel().collect(Collectors.toList());
+        }
+        assertEquals(count, parallel.size());
+        assertEquals(sequential.stream().map(LinReaderTest::describe).toList(),
+                parallel.stream().map(LinReaderTest::describe).toList());
+    }
+
+    private static List<Deal> read(Path file) throws IOException {
+        try (Stream<Deal> deals = LinReader.stream(file)) {
+            return deals.collect(Collectors.toList());
+        }
+    }
+
+    private static Path write(String text, boolean gzip) throws IOException {
+        Path file = Files.createTempFile("deals", gzip ? ".lin.gz" : ".lin");
+        file.toFile().deleteOnExit();
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (gzip) {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+                out.write(bytes);
+            }
+        } else {
+            Files.write(file, bytes);
+        }
+        return file;
+    }
+
+    private static String describe(Deal deal) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(deal.boardNumber()).append(' ').append(deal.boardName()).append(' ').append(deal.dealer());
+        for (Direction dir : Direction.values()) {
+            sb.append(' ').append(Long.toHexString(deal.hand(dir).bits()));
+        }
+        return sb.toString();
+    }
+}
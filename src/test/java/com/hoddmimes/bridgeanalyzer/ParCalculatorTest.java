@@ -0,0 +1,68 @@
+package com.hoddmimes.bridgeanalyzer;
+
+import com.hoddmimes.bridgeanalyzer.cli.DealGenerator;
+import com.hoddmimes.bridgeanalyzer.game.Deal;
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+import com.hoddmimes.bridgeanalyzer.model.Trump;
+import com.hoddmimes.bridgeanalyzer.solver.DDTable;
+import com.hoddmimes.bridgeanalyzer.solver.ParCalculator;
+import com.hoddmimes.bridgeanalyzer.solver.Solver;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParCalculatorTest {
+    private final Deal deal = DealGenerator.generate(new Random(1));
+
+    /** Table where NS take the given tricks in spades and hearts, and 6 in the other strains. */
+    private DDTable table(int spades, int hearts) {
+        Solver solver = (d, trump, declarer) -> switch (trump) {
+            case SPADES -> spades;
+            case HEARTS -> hearts;
+            default -> 6;
+        };
+        return solver.solveTable(deal);
+    }
+
+    @Test
+    void gameMakes() {
+        ParCalculator par = new ParCalculator();
+        assertEquals(420, par.compute(table(10, 6), false, false, Direction.NORTH));
+        assertEquals(4, par.level());
+        assertEquals(Trump.SPADES, par.strain());
+        assertEquals(Direction.NORTH, par.declarer());
+        assertFalse(par.doubled());
+        assertEquals("4S by N +420", par.describe());
+    }
+
+    @Test
+    void sacrificeIsDoubled() {
+        // NS make 4S vulnerable, EW take 9 tricks in hearts not vulnerable
+        ParCalculator par = new ParCalculator();
+        assertEquals(300, par.compute(table(10, 4), true, false, Direction.NORTH));
+        assertEquals(5, par.level());
+        assertEquals(Trump.HEARTS, par.strain());
+        assertEquals(Direction.EAST, par.declarer());
+        assertTrue(par.doubled());
+    }
+
+    @Test
+    void partScoreForTheOtherSide() {
+        // EW take 7 tricks in clubs, diamonds and NT; NS 7 in spades
+        ParCalculator par = new ParCalculator();
+        int score = par.compute(table(7, 6), false, false, Direction.EAST);
+        assertEquals(-90, score);
+        assertEquals("1NT by E -90", par.describe());
+    }
+
+    @Test
+    void makeableContracts() {
+        long mask = ParCalculator.makeable(table(10, 6), Direction.SOUTH);
+        // 1S-4S: spades are strain 3
+        assertEquals(1L << 3 | 1L << 8 | 1L << 13 | 1L << 18, mask);
+        // West takes 7 tricks in clubs, diamonds, hearts and NT
+        assertEquals(0b10111L, ParCalculator.makeable(table(10, 6), Direction.WEST));
+    }
+}
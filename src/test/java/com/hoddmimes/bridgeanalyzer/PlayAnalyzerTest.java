@@ -0,0 +1,98 @@
+package com.hoddmimes.bridgeanalyzer;
+
+import com.hoddmimes.bridgeanalyzer.game.Deal;
+import com.hoddmimes.bridgeanalyzer.game.GameState;
+import com.hoddmimes.bridgeanalyzer.game.PlayRecord;
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+import com.hoddmimes.bridgeanalyzer.model.Trump;
+import com.hoddmimes.bridgeanalyzer.solver.AlphaBetaSolver;
+import com.hoddmimes.bridgeanalyzer.solver.BruteForceSolver;
+import com.hoddmimes.bridgeanalyzer.solver.PlayAnalysis;
+import com.hoddmimes.bridgeanalyzer.solver.PlayAnalyzer;
+import com.hoddmimes.bridgeanalyzer.solver.Solver;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayAnalyzerTest {
+    private static final String[][] AUCTIONS = {
+            {"1S", "P", "P", "P"},
+            {"P", "1N", "P", "3N", "P", "P", "P"},
+            {"1C", "1H", "P", "2H", "D", "P", "P", "P"},
+    };
+
+    @Test
+    void valuesMatchBruteForceAfterEveryCard() {
+        Random rnd = new Random(99L);
+        Solver bf = new BruteForceSolver();
+        PlayAnalyzer analyzer = new PlayAnalyzer(new AlphaBetaSolver(1));
+
+        for (int n = 0; n < 20; n++) {
+            Deal deal = SolverTest.randomDeal(rnd, 4 + n % 3);
+            deal.setDealer(Direction.fromIndex(n % 4));
+            PlayRecord record = new PlayRecord();
+            for (String bid : AUCTIONS[n % AUCTIONS.length]) {
+                record.addBid(bid);
+            }
+            // Random legal cards, so that both sides make mistakes
+            GameState state = new GameState(deal, record.trump(), record.declarer(deal.dealer()));
+            int[][] expected = new int[4 * state.totalTricks()][];
+            for (int i = 0; !state.isTerminal(); i++) {
+                expected[i] = bf.solveAllMoves(state);
+                long legal = state.legalMoveMask();
+                int card = Long.numberOfTrailingZeros(legal);
+                for (int skip = rnd.nextInt(Long.bitCount(legal)); skip > 0; skip--) {
+                    card = Long.numberOfTrailingZeros(legal & -(2L << card));
+                }
+                record.addCard(card);
+                state.playCardFast(card);
+            }
+            deal.setPlayRecord(record);
+
+            PlayAnalysis analysis = analyzer.analyze(deal);
+            int total = state.totalTricks();
+            assertEquals(4 * total, analysis.cards());
+            assertFalse(analysis.stoppedEarly());
+            Direction declarer = analysis.declarer();
+            int nsStart = bf.solve(deal, record.trump(), declarer);
+            assertEquals(declarer.isNS() ? nsStart : total - nsStart, analysis.tricks(0));
+            for (int i = 0; i < analysis.cards(); i++) {
+                int ns = expected[i][analysis.card(i)];
+                assertEquals(declarer.isNS() ? ns : total - ns, analysis.tricks(i + 1),
+                        String.format("Mismatch on deal %d after card %d", n, i));
+                assertTrue(analysis.cost(i) >= 0);
+            }
+            assertEquals(analysis.tricks(analysis.cards()),
+                    analysis.tricks(0) - analysis.tricksLost(true) + analysis.tricksLost(false));
+        }
+    }
+
+    @Test
+    void stopsAtACardThatCannotBePlayed() {
+        Deal deal = SolverTest.randomDeal(new Random(5L), 5);
+        deal.setDealer(Direction.NORTH);
+        PlayRecord record = new PlayRecord();
+        for (String bid : AUCTIONS[0]) {
+            record.addBid(bid);
+        }
+        // East leads against 1S by North; a card of North's cannot be played
+        GameState state = new GameState(deal, Trump.SPADES, Direction.NORTH);
+        int lead = Long.numberOfTrailingZeros(state.legalMoveMask());
+        record.addCard(lead);
+        record.addCard(Long.numberOfTrailingZeros(deal.hand(Direction.NORTH).bits()));
+        record.setClaim(3);
+        deal.setPlayRecord(record);
+
+        PlayAnalysis analysis = new PlayAnalyzer(new AlphaBetaSolver(1)).analyze(deal);
+        assertEquals(1, analysis.cards());
+        assertTrue(analysis.stoppedEarly());
+        assertEquals(Direction.EAST, analysis.player(0));
+        assertEquals(3, analysis.claim());
+        assertTrue(analysis.toString().startsWith("1S by N, double dummy "));
+
+        deal.setPlayRecord(null);
+        assertNull(new PlayAnalyzer(new AlphaBetaSolver(1)).analyze(deal));
+    }
+}
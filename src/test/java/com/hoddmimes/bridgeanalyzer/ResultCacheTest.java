@@ -0,0 +1,93 @@
+package com.hoddmimes.bridgeanalyzer;
+
+import com.hoddmimes.bridgeanalyzer.cli.DealGenerator;
+import com.hoddmimes.bridgeanalyzer.game.Deal;
+import com.hoddmimes.bridgeanalyzer.game.Hand;
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+import com.hoddmimes.bridgeanalyzer.model.Trump;
+import com.hoddmimes.bridgeanalyzer.solver.CachingSolver;
+import com.hoddmimes.bridgeanalyzer.solver.DDTable;
+import com.hoddmimes.bridgeanalyzer.solver.ResultCache;
+import com.hoddmimes.bridgeanalyzer.solver.Solver;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultCacheTest {
+    // A stand-in solver: NS tricks depend on the strain and declarer only
+    private static final Solver FAKE = (deal, trump, declarer) -> trump.ordinal() + declarer.index();
+
+    @Test
+    void tablesSurviveReopening() throws IOException {
+        Path file = tempFile();
+        Random random = new Random(3);
+        Deal[] deals = new Deal[50];
+        for (int i = 0; i < deals.length; i++) {
+            deals[i] = DealGenerator.generate(random);
+        }
+
+        try (ResultCache cache = ResultCache.open(file, 1)) {
+            for (Deal deal : deals) {
+                assertNull(cache.lookup(deal));
+                cache.store(deal, FAKE.solveTable(deal));
+            }
+        }
+        try (ResultCache cache = ResultCache.open(file)) {
+            DDTable expected = FAKE.solveTable(deals[0]);
+            for (Deal deal : deals) {
+                DDTable table = cache.lookup(deal);
+                assertNotNull(table);
+                for (Trump trump : Trump.values()) {
+                    for (Direction declarer : Direction.values()) {
+                        assertEquals(expected.tricks(trump, declarer), table.tricks(trump, declarer));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void incompleteDealsAreNotStored() throws IOException {
+        try (ResultCache cache = ResultCache.open(tempFile(), 1)) {
+            Deal deal = DealGenerator.generate(new Random(5));
+            deal.setHand(Direction.WEST, new Hand());
+            cache.store(deal, FAKE.solveTable(deal));
+            assertNull(cache.lookup(deal));
+        }
+    }
+
+    @Test
+    void cachingSolverSolvesEachDealOnce() throws IOException {
+        AtomicInteger solves = new AtomicInteger();
+        Solver counting = (deal, trump, declarer) -> {
+            solves.incrementAndGet();
+            return FAKE.solve(deal, trump, declarer);
+        };
+        try (ResultCache cache = ResultCache.open(tempFile(), 1)) {
+            Solver solver = new CachingSolver(counting, cache);
+            Deal deal = DealGenerator.generate(new Random(9));
+
+            DDTable first = solver.solveTable(deal);
+            assertEquals(20, solves.get());
+            DDTable second = solver.solveTable(deal);
+            assertEquals(20, solves.get());
+            assertEquals(first.tricks(Trump.SPADES, Direction.EAST), second.tricks(Trump.SPADES, Direction.EAST));
+            assertEquals(FAKE.solve(deal, Trump.HEARTS, Direction.WEST),
+                    solver.solve(deal, Trump.HEARTS, Direction.WEST));
+            assertEquals(20, solves.get());
+        }
+    }
+
+    private static Path tempFile() throws IOException {
+        Path file = Files.createTempFile("results", ".ddc");
+        Files.delete(file);
+        file.toFile().deleteOnExit();
+        return file;
+    }
+}
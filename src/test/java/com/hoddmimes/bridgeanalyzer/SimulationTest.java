@@ -0,0 +1,82 @@
+package com.hoddmimes.bridgeanalyzer;
+
+import com.hoddmimes.bridgeanalyzer.cli.DealGenerator;
+import com.hoddmimes.bridgeanalyzer.cli.HandConstraint;
+import com.hoddmimes.bridgeanalyzer.cli.LinParser;
+import com.hoddmimes.bridgeanalyzer.cli.Simulation;
+import com.hoddmimes.bridgeanalyzer.cli.SimulationResult;
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+import com.hoddmimes.bridgeanalyzer.model.Trump;
+import com.hoddmimes.bridgeanalyzer.solver.Solver;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationTest {
+    private static final long NORTH = LinParser.parseHand("SAKQ2HJ32DK54CQ97").bits();
+    private static final long SOUTH = LinParser.parseHand("SJT98HKQ5DA32CA86").bits();
+
+    // Tricks depend on the hidden hands: NS lose a trick for each spade West holds
+    private static final Solver FAKE = (deal, trump, declarer) ->
+            13 - Long.bitCount(deal.hand(Direction.WEST).bits() & 0x1FFFL);
+
+    @Test
+    void sameResultOnAnyNumberOfThreads() throws InterruptedException {
+        SimulationResult one = simulation(1).run(r -> { });
+        SimulationResult four = simulation(4).run(r -> { });
+        assertEquals(500, one.deals());
+        assertEquals(one.toString(), four.toString());
+        long total = 0;
+        for (int tricks = 0; tricks <= 13; tricks++) {
+            assertEquals(one.count(Trump.SPADES, Direction.NORTH, tricks), four.count(Trump.SPADES, Direction.NORTH, tricks));
+            total += one.count(Trump.SPADES, Direction.NORTH, tricks);
+        }
+        assertEquals(500, total);
+        assertTrue(one.probability(Trump.SPADES, Direction.NORTH, 10) > 0.2);
+    }
+
+    @Test
+    void knownHandsAreKept() throws InterruptedException {
+        AtomicInteger solved = new AtomicInteger();
+        Solver checking = (deal, trump, declarer) -> {
+            assertEquals(NORTH, deal.hand(Direction.NORTH).bits());
+            assertEquals(SOUTH, deal.hand(Direction.SOUTH).bits());
+            assertTrue(HandConstraint.points(deal.hand(Direction.EAST).bits()) >= 10);
+            solved.incrementAndGet();
+            return 7;
+        };
+        DealGenerator generator = known().constrain(Direction.EAST, new HandConstraint().hcp(10, 37));
+        SimulationResult result = new Simulation(generator, () -> checking).threads(2).deals(0, 40).run(r -> { });
+        assertEquals(40 * 10, solved.get());
+        assertEquals(1.0, result.probability(Trump.NO_TRUMP, Direction.SOUTH, 7));
+        assertEquals(7.0, result.mean(Trump.HEARTS, Direction.NORTH));
+    }
+
+    @Test
+    void stopsOnceTheIntervalIsNarrowEnough() throws InterruptedException {
+        AtomicInteger reports = new AtomicInteger();
+        SimulationResult constant = new Simulation(known(), () -> (deal, trump, declarer) -> 10)
+                .threads(3).deals(64, 100_000).target(0.01).run(r -> reports.incrementAndGet());
+        assertEquals(64, constant.deals());
+        assertEquals(8, reports.get());
+        assertEquals(0.0, constant.halfWidth());
+
+        SimulationResult varying = simulation(4).deals(50, 100_000).target(0.05).run(r -> { });
+        assertTrue(varying.halfWidth() <= 0.05);
+        assertTrue(varying.deals() < 100_000);
+        assertThrows(IllegalArgumentException.class, () -> varying.mean(Trump.CLUBS, Direction.EAST));
+    }
+
+    private static Simulation simulation(int threads) {
+        return new Simulation(known(), () -> FAKE).strains(Trump.SPADES, Trump.NO_TRUMP)
+                .declarers(Direction.NORTH).threads(threads).deals(0, 500);
+    }
+
+    private static DealGenerator known() {
+        return new DealGenerator(2024)
+                .constrain(Direction.NORTH, new HandConstraint().cards(NORTH))
+                .constrain(Direction.SOUTH, new HandConstraint().cards(SOUTH));
+    }
+}
@@ -0,0 +1,158 @@
+package com.hoddmimes.bridgeanalyzer;
+
+import com.hoddmimes.bridgeanalyzer.game.Deal;
+import com.hoddmimes.bridgeanalyzer.game.GameState;
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+import com.hoddmimes.bridgeanalyzer.model.Trump;
+import com.hoddmimes.bridgeanalyzer.solver.AlphaBetaSolver;
+import com.hoddmimes.bridgeanalyzer.solver.BruteForceSolver;
+import com.hoddmimes.bridgeanalyzer.solver.DDTable;
+import com.hoddmimes.bridgeanalyzer.solver.Solver;
+import com.hoddmimes.bridgeanalyzer.solver.SolverPool;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolverPoolTest {
+
+    @Test
+    void concurrentSolvesMatchASingleSolver() throws Exception {
+        Random rnd = new Random(25L);
+        Solver single = new AlphaBetaSolver(1);
+        Solver bf = new BruteForceSolver();
+        List<Deal> deals = new ArrayList<>();
+        for (int n = 0; n < 12; n++) {
+            deals.add(SolverTest.randomDeal(rnd, 4 + n % 3));
+        }
+        try (SolverPool pool = new SolverPool("alphabeta", 3, 6)) {
+            assertEquals(3, pool.instances());
+            List<CompletableFuture<DDTable>> tables = new ArrayList<>();
+            List<CompletableFuture<Integer>> cells = new ArrayList<>();
+            List<CompletableFuture<int[]>> moves = new ArrayList<>();
+            for (Deal deal : deals) {
+                tables.add(pool.solveTableAsync(deal));
+                cells.add(pool.solveAsync(deal, Trump.HEARTS, Direction.WEST));
+                moves.add(pool.solveAllMovesAsync(new GameState(deal, Trump.NO_TRUMP, Direction.SOUTH)));
+            }
+            for (int n = 0; n < deals.size(); n++) {
+                Deal deal = deals.get(n);
+                DDTable table = tables.get(n).get(30, TimeUnit.SECONDS);
+                DDTable expected = single.solveTable(deal);
+                for (Trump trump : Trump.values()) {
+                    for (Direction declarer : Direction.values()) {
+                        assertEquals(expected.tricks(trump, declarer), table.tricks(trump, declarer));
+                    }
+                }
+                assertEquals(single.solve(deal, Trump.HEARTS, Direction.WEST),
+                        (int) cells.get(n).get(30, TimeUnit.SECONDS));
+                assertArrayEquals(bf.solveAllMoves(new GameState(deal, Trump.NO_TRUMP, Direction.SOUTH)),
+                        moves.get(n).get(30, TimeUnit.SECONDS), "Deal " + n);
+            }
+        }
+    }
+
+    @Test
+    void cancellingInterruptsTheRunningSolveAndDropsQueuedOnes() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        Solver spinning = (deal, trump, declarer) -> {
+            runs.incrementAndGet();
+            if (trump == Trump.SPADES) {
+                started.countDown();
+                while (!Thread.currentThread().isInterrupted()) {
+                    Thread.onSpinWait();
+                }
+                throw new CancellationException("Solve interrupted");
+            }
+            return trump.ordinal();
+        };
+        Deal deal = SolverTest.randomDeal(new Random(1L), 3);
+        try (SolverPool pool = new SolverPool(1, () -> spinning)) {
+            CompletableFuture<Integer> running = pool.solveAsync(deal, Trump.SPADES, Direction.NORTH);
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            CompletableFuture<Integer> queued = pool.solveAsync(deal, Trump.HEARTS, Direction.NORTH);
+            CompletableFuture<Integer> next = pool.solveAsync(deal, Trump.CLUBS, Direction.NORTH);
+            assertEquals(2, pool.pending());
+            queued.cancel(true);
+            running.cancel(true);
+
+            assertEquals(3, (int) next.get(10, TimeUnit.SECONDS));
+            assertTrue(running.isCancelled());
+            assertTrue(queued.isCancelled());
+            assertEquals(2, runs.get());
+        }
+    }
+
+    @Test
+    void closingCancelsPendingSolves() throws Exception {
+        CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+        Solver blocking = (deal, trump, declarer) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new CancellationException("Solve interrupted");
+            }
+            return 0;
+        };
+        Deal deal = SolverTest.randomDeal(new Random(2L), 3);
+        SolverPool pool = new SolverPool(1, () -> blocking);
+        CompletableFuture<Integer> running = pool.solveAsync(deal, Trump.SPADES, Direction.NORTH);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        CompletableFuture<DDTable> queued = pool.solveTableAsync(deal);
+        pool.close();
+        assertTrue(queued.isCancelled());
+        assertThrows(CancellationException.class, () -> running.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void interruptedSearchesStop() {
+        Deal deal = SolverTest.randomDeal(new Random(3L), 13);
+        Deal small = SolverTest.randomDeal(new Random(4L), 5);
+        int expected = new AlphaBetaSolver(1).solve(small, Trump.SPADES, Direction.EAST);
+        for (int threads = 1; threads <= 2; threads++) {
+            AlphaBetaSolver solver = new AlphaBetaSolver(1, false, threads);
+            Thread.currentThread().interrupt();
+            try {
+                assertThrows(CancellationException.class, () -> solver.solve(deal, Trump.NO_TRUMP, Direction.NORTH));
+            } finally {
+                assertTrue(Thread.interrupted());
+            }
+            // The solver stays usable
+            assertEquals(expected, solver.solve(small, Trump.SPADES, Direction.EAST));
+        }
+    }
+
+    @Test
+    void cancellingStopsParallelAllMovesSearches() throws Exception {
+        // Solving every card of this deal in parallel takes several seconds
+        GameState position = new GameState(SolverTest.randomDeal(new Random(6L), 13), Trump.NO_TRUMP,
+                Direction.NORTH);
+        try (SolverPool pool = new SolverPool(1, () -> new AlphaBetaSolver(16, false, 2))) {
+            CompletableFuture<int[]> moves = pool.solveAllMovesAsync(position);
+            Thread.sleep(200);
+            moves.cancel(true);
+            assertTrue(moves.isCancelled());
+            // The worker is free again long before the cancelled solve would have finished
+            Deal small = SolverTest.randomDeal(new Random(7L), 4);
+            assertEquals(new AlphaBetaSolver(1).solve(small, Trump.CLUBS, Direction.NORTH),
+                    (int) pool.solveAsync(small, Trump.CLUBS, Direction.NORTH).get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void memoryCapIsSplitBetweenInstances() {
+        assertThrows(IllegalArgumentException.class, () -> new SolverPool("alphabeta", 4, 3));
+        assertThrows(IllegalArgumentException.class, () -> new SolverPool("alphabeta", 0, 64));
+        assertThrows(IllegalArgumentException.class, () -> new SolverPool("nosuch", 1, 1));
+    }
+}
@@ -0,0 +1,120 @@
+package com.hoddmimes.bridgeanalyzer;
+
+import com.hoddmimes.bridgeanalyzer.cli.SolverServer;
+import com.hoddmimes.bridgeanalyzer.model.Direction;
+import com.hoddmimes.bridgeanalyzer.model.Trump;
+import com.hoddmimes.bridgeanalyzer.solver.AlphaBetaSolver;
+import com.hoddmimes.bridgeanalyzer.solver.DDTable;
+import com.hoddmimes.bridgeanalyzer.solver.Solver;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolverServerTest {
+    private static final String MD = "3SA74HKJ975DT8C842,ST853HT4DJ9CAKQJ5,SKQJ9HQ862DQ54C97";
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    // NS take as many tricks as the strain's ordinal, whoever declares
+    private static final Solver FAKE = (deal, trump, declarer) -> trump.ordinal();
+
+    @Test
+    void solvesSingleDealsAndBatches() throws Exception {
+        try (SolverServer server = new SolverServer(0, 2, 16, () -> FAKE)) {
+            server.start(0);
+            HttpResponse<String> single = post(server, "{\"md\": \"" + MD + "\", \"id\": 7}");
+            assertEquals(200, single.statusCode());
+            assertTrue(single.body().startsWith("{\"id\":7,\"table\":{\"S\":{\"N\":0,\"E\":13,\"S\":0,\"W\":13},"
+                    + "\"H\":{\"N\":1,\"E\":12,"), single.body());
+            assertTrue(single.body().contains("\"par\":"));
+
+            HttpResponse<String> batch = post(server, "{\"deals\": ["
+                    + "{\"pbn\": \"N:A.K.Q.J K.Q.J.A Q.J.A.K J.A.K.Q\", \"id\": \"a\"},"
+                    + "{\"md\": \"" + MD + "\", \"vul\": \"B\", \"id\": \"b\"}]}");
+            assertEquals(200, batch.statusCode());
+            assertTrue(batch.body().startsWith("{\"results\":[{\"id\":\"a\",\"table\":{\"S\":{\"N\":0,\"E\":4,"),
+                    batch.body());
+            assertTrue(batch.body().contains("{\"id\":\"b\",\"table\":{\"S\":{\"N\":0,\"E\":13,"));
+
+            assertEquals(400, post(server, "{\"md\": ").statusCode());
+            assertEquals(400, post(server, "{\"pbn\": \"N:AK.. K.Q.J.A Q.J.A.K J.A.K.Q\"}").statusCode());
+            assertEquals(400, post(server, "[1, 2]").statusCode());
+            HttpResponse<String> get = CLIENT.send(HttpRequest.newBuilder(uri(server, "/solve")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(405, get.statusCode());
+
+            String stats = CLIENT.send(HttpRequest.newBuilder(uri(server, "/stats")).build(),
+                    HttpResponse.BodyHandlers.ofString()).body();
+            assertTrue(stats.contains("\"requests\":2,\"deals\":3,\"rejected\":0,\"errors\":3"), stats);
+        }
+    }
+
+    @Test
+    void rejectsRequestsWhenTheQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+        Solver blocking = (deal, trump, declarer) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 0;
+        };
+        try (SolverServer server = new SolverServer(0, 1, 1, () -> blocking)) {
+            server.start(0);
+            String body = "{\"md\": \"" + MD + "\"}";
+            CompletableFuture<HttpResponse<String>> first = postAsync(server, body);
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            CompletableFuture<HttpResponse<String>> second = postAsync(server, body);
+            while (!server.stats().contains("\"queued\":1")) {
+                Thread.sleep(5);
+            }
+            assertEquals(503, post(server, body).statusCode());
+
+            release.countDown();
+            assertEquals(200, first.get(10, TimeUnit.SECONDS).statusCode());
+            assertEquals(200, second.get(10, TimeUnit.SECONDS).statusCode());
+            assertTrue(server.stats().contains("\"rejected\":1"), server.stats());
+        }
+    }
+
+    @Test
+    void warmedSolversGiveTheirTables() throws Exception {
+        String pbn = "W:AK.Q.J. Q.K.Q.A J.A.AK. .J.T.KQ";
+        DDTable expected = new AlphaBetaSolver(1).solveTable(SolverServer.parsePbn(pbn));
+        try (SolverServer server = new SolverServer(0, 2, 16, () -> new AlphaBetaSolver(1))) {
+            server.start(20);
+            String body = post(server, "{\"pbn\": \"" + pbn + "\"}").body();
+            for (Trump trump : Trump.values()) {
+                assertTrue(body.contains(String.format("\"%s\":{\"N\":%d,\"E\":%d,\"S\":%d,\"W\":%d}", trump.label(),
+                        expected.tricks(trump, Direction.NORTH), expected.tricks(trump, Direction.EAST),
+                        expected.tricks(trump, Direction.SOUTH), expected.tricks(trump, Direction.WEST))), body);
+            }
+        }
+    }
+
+    private static HttpResponse<String> post(SolverServer server, String body) throws Exception {
+        return postAsync(server, body).get(10, TimeUnit.SECONDS);
+    }
+
+    private static CompletableFuture<HttpResponse<String>> postAsync(SolverServer server, String body)
+            throws URISyntaxException {
+        HttpRequest request = HttpRequest.newBuilder(uri(server, "/solve"))
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+        return CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static URI uri(SolverServer server, String path) throws URISyntaxException {
+        return new URI("http", null, InetAddress.getLoopbackAddress().getHostAddress(), server.port(), path, null, null);
+    }
+}
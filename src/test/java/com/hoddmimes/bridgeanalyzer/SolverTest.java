@@ -1,13 +1,21 @@
 package com.hoddmimes.bridgeanalyzer;
 
 import com.hoddmimes.bridgeanalyzer.game.Deal;
+import com.hoddmimes.bridgeanalyzer.game.GameState;
 import com.hoddmimes.bridgeanalyzer.game.Hand;
 import com.hoddmimes.bridgeanalyzer.model.*;
 import com.hoddmimes.bridgeanalyzer.solver.AlphaBetaSolver;
 import com.hoddmimes.bridgeanalyzer.solver.BruteForceSolver;
+import com.hoddmimes.bridgeanalyzer.solver.DDTable;
+import com.hoddmimes.bridgeanalyzer.solver.SolverFactory;
 import com.hoddmimes.bridgeanalyzer.solver.Solver;
+import com.hoddmimes.bridgeanalyzer.solver.SolverStats;
 import org.junit.jupiter.api.Test;
 
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class SolverTest {
@@ -122,4 +130,179 @@ class SolverTest {
             }
         }
     }
+
+    /** Deal {@code cardsPerHand} random cards to each hand. */
+    static Deal randomDeal(Random rnd, int cardsPerHand) {
+        Card[] deck = Card.allCards();
+        for (int i = deck.length - 1; i > 0; i--) {
+            int j = rnd.nextInt(i + 1);
+            Card t = deck[i]; deck[i] = deck[j]; deck[j] = t;
+        }
+        Deal deal = new Deal();
+        for (int i = 0; i < cardsPerHand * 4; i++) {
+            deal.hand(Direction.fromIndex(i % 4)).add(deck[i]);
+        }
+        return deal;
+    }
+
+    @Test
+    void solversAgreeOnRandomSmallDeals() {
+        Random rnd = new Random(20240611L);
+        Solver bf = new BruteForceSolver();
+        Solver ab = new AlphaBetaSolver(1);
+        Solver partition = new AlphaBetaSolver(1, true);
+
+        for (int n = 0; n < 40; n++) {
+            Deal deal = randomDeal(rnd, 4 + n % 2);
+            for (Trump trump : Trump.values()) {
+                for (Direction declarer : Direction.values()) {
+                    int expected = bf.solve(deal, trump, declarer);
+                    assertEquals(expected, ab.solve(deal, trump, declarer),
+                            String.format("Mismatch on deal %d, trump=%s, declarer=%s", n, trump, declarer));
+                    assertEquals(expected, partition.solve(deal, trump, declarer),
+                            String.format("Partition mismatch on deal %d, trump=%s, declarer=%s", n, trump, declarer));
+                }
+            }
+        }
+    }
+
+    @Test
+    void tableMatchesSingleSolves() {
+        Random rnd = new Random(777L);
+        Solver bf = new BruteForceSolver();
+        Solver ab = new AlphaBetaSolver(1);
+
+        for (int n = 0; n < 20; n++) {
+            Deal deal = randomDeal(rnd, 5);
+            DDTable table = ab.solveTable(deal);
+            for (Trump trump : Trump.values()) {
+                for (Direction declarer : Direction.values()) {
+                    int nsTricks = bf.solve(deal, trump, declarer);
+                    int expected = declarer.isNS() ? nsTricks : 5 - nsTricks;
+                    assertEquals(expected, table.tricks(trump, declarer),
+                            String.format("Mismatch on deal %d, trump=%s, declarer=%s", n, trump, declarer));
+                }
+            }
+        }
+    }
+
+    @Test
+    void parallelSearchAgreesWithSingleThread() {
+        Random rnd = new Random(4242L);
+        Solver bf = new BruteForceSolver();
+        Solver parallel = new AlphaBetaSolver(1, false, 4);
+
+        for (int n = 0; n < 20; n++) {
+            Deal deal = randomDeal(rnd, 5 + n % 2);
+            for (Trump trump : Trump.values()) {
+                for (Direction declarer : Direction.values()) {
+                    assertEquals(bf.solve(deal, trump, declarer), parallel.solve(deal, trump, declarer),
+                            String.format("Mismatch on deal %d, trump=%s, declarer=%s", n, trump, declarer));
+                }
+            }
+            DDTable table = parallel.solveTable(deal);
+            int total = 5 + n % 2;
+            for (Direction declarer : Direction.values()) {
+                int nsTricks = bf.solve(deal, Trump.NO_TRUMP, declarer);
+                assertEquals(declarer.isNS() ? nsTricks : total - nsTricks, table.tricks(Trump.NO_TRUMP, declarer));
+            }
+        }
+    }
+
+    @Test
+    void parallelSolversShareOneSearchPool() {
+        Set<String> before = searchPools();
+        Random rnd = new Random(77L);
+        for (int n = 0; n < 6; n++) {
+            new AlphaBetaSolver(1, false, 3).solveTable(randomDeal(rnd, 6));
+        }
+        Set<String> added = searchPools();
+        added.removeAll(before);
+        assertTrue(added.size() <= 1, "Search pools started: " + added);
+    }
+
+    /** Names of the ForkJoinPools that have live workers, such as "ForkJoinPool-3". */
+    private static Set<String> searchPools() {
+        Set<String> pools = new HashSet<>();
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            int worker = t.getName().indexOf("-worker-");
+            if (t.getName().startsWith("ForkJoinPool-") && worker > 0) pools.add(t.getName().substring(0, worker));
+        }
+        return pools;
+    }
+
+    @Test
+    void zeroWindowDriversAgreeWithBruteForce() {
+        Random rnd = new Random(1313L);
+        Solver bf = new BruteForceSolver();
+        Solver mtdf = SolverFactory.create("mtdf", 1);
+        Solver binary = SolverFactory.create("binary", 1);
+
+        for (int n = 0; n < 30; n++) {
+            Deal deal = randomDeal(rnd, 4 + n % 3);
+            for (Trump trump : Trump.values()) {
+                for (Direction declarer : Direction.values()) {
+                    int expected = bf.solve(deal, trump, declarer);
+                    assertEquals(expected, mtdf.solve(deal, trump, declarer),
+                            String.format("MTD(f) mismatch on deal %d, trump=%s, declarer=%s", n, trump, declarer));
+                    assertEquals(expected, binary.solve(deal, trump, declarer),
+                            String.format("Binary mismatch on deal %d, trump=%s, declarer=%s", n, trump, declarer));
+                }
+            }
+            DDTable table = mtdf.solveTable(deal);
+            int total = 4 + n % 3;
+            for (Direction declarer : Direction.values()) {
+                int nsTricks = bf.solve(deal, Trump.SPADES, declarer);
+                assertEquals(declarer.isNS() ? nsTricks : total - nsTricks, table.tricks(Trump.SPADES, declarer));
+            }
+        }
+    }
+
+    @Test
+    void allMovesMatchBruteForce() {
+        Random rnd = new Random(2718L);
+        Solver bf = new BruteForceSolver();
+        Solver ab = new AlphaBetaSolver(1);
+        Solver parallel = new AlphaBetaSolver(1, false, 3);
+
+        for (int n = 0; n < 30; n++) {
+            Deal deal = randomDeal(rnd, 4 + n % 3);
+            Trump trump = Trump.values()[n % 5];
+            GameState state = new GameState(deal, trump, Direction.fromIndex(n % 4));
+            // Openings leads, then positions within a trick
+            for (int played = 0; played < 3 && !state.isTerminal(); played++) {
+                int[] expected = bf.solveAllMoves(state);
+                String where = String.format("deal %d, trump=%s, %d cards played", n, trump, played);
+                assertArrayEquals(expected, ab.solveAllMoves(state), "Mismatch on " + where);
+                assertArrayEquals(expected, parallel.solveAllMoves(state), "Parallel mismatch on " + where);
+                long legal = state.legalMoveMask();
+                for (int card = 0; card < 52; card++) {
+                    assertEquals((legal & 1L << card) != 0, expected[card] >= 0);
+                }
+                state.playCardFast(Long.numberOfTrailingZeros(legal));
+            }
+        }
+        int[] lead = ab.solveAllMoves(new GameState(miniDeal(), Trump.SPADES, Direction.NORTH));
+        assertEquals(2, lead[Card.of(Suit.HEARTS, Rank.ACE).bitIndex()]);
+        assertEquals(-1, lead[Card.of(Suit.SPADES, Rank.ACE).bitIndex()]);
+    }
+
+    @Test
+    void statsCountTheLastSolve() {
+        Deal deal = randomDeal(new Random(77L), 6);
+        AlphaBetaSolver solver = new AlphaBetaSolver(1);
+
+        long before = solver.nodes();
+        solver.solve(deal, Trump.HEARTS, Direction.SOUTH);
+        SolverStats stats = solver.lastStats();
+        assertEquals(solver.nodes() - before, stats.nodes());
+        assertEquals(0, stats.nodes(6));
+        assertTrue(stats.ttProbes() >= stats.ttHits() && stats.ttHits() >= stats.ttCutoffs());
+        assertTrue(stats.cutoffs() >= stats.cutoffs(0));
+
+        before = solver.nodes();
+        solver.solveTable(deal);
+        assertEquals(solver.nodes() - before, solver.lastStats().nodes());
+        assertNull(new BruteForceSolver().lastStats());
+    }
 }
@@ -0,0 +1,127 @@
+package com.hoddmimes.bridgeanalyzer;
+
+import com.hoddmimes.bridgeanalyzer.solver.TranspositionTable;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTest {
+
+    // Owner word keeping the top card of the first suit (k=1), held by South
+    private static final long TOP_SOUTH = (1L << 52) | 2L;
+
+    @Test
+    void storeAndLookup() {
+        TranspositionTable tt = new TranspositionTable(1);
+        tt.store(42L, 5L, TOP_SOUTH, 0L, 5, 100, 0, 13, TranspositionTable.NO_MOVE);
+        long found = tt.lookup(42L, 5L, 2L, 0L);
+        assertNotEquals(0L, found);
+        assertEquals(0, TranspositionTable.lower(found));
+        assertEquals(13, TranspositionTable.upper(found));
+        assertEquals(1, TranspositionTable.kept(found));
+
+        // Storing the same class again narrows the bounds
+        tt.store(42L, 5L, TOP_SOUTH, 0L, 5, 100, 4, 13, TranspositionTable.NO_MOVE);
+        tt.store(42L, 5L, TOP_SOUTH, 0L, 5, 100, 0, 7, TranspositionTable.NO_MOVE);
+        found = tt.lookup(42L, 5L, 2L, 0L);
+        assertEquals(4, TranspositionTable.lower(found));
+        assertEquals(7, TranspositionTable.upper(found));
+    }
+
+    @Test
+    void bestMoveIsKeptUntilReplaced() {
+        TranspositionTable tt = new TranspositionTable(1);
+        tt.store(42L, 5L, TOP_SOUTH, 0L, 5, 100, 0, 13, 0x12);
+        tt.store(42L, 5L, TOP_SOUTH, 0L, 5, 100, 2, 13, TranspositionTable.NO_MOVE);
+        assertEquals(0x12, TranspositionTable.move(tt.lookup(42L, 5L, 2L, 0L)));
+        tt.store(42L, 5L, TOP_SOUTH, 0L, 5, 100, 2, 13, 0x05);
+        assertEquals(0x05, TranspositionTable.move(tt.lookup(42L, 5L, 2L, 0L)));
+    }
+
+    @Test
+    void classCoversPositionsThatDifferOnlyInSmallCards() {
+        TranspositionTable tt = new TranspositionTable(1);
+        tt.store(42L, 5L, TOP_SOUTH, 0L, 5, 100, 0, 13, TranspositionTable.NO_MOVE);
+        // Second card of the first suit is West's (3) or North's (0): same class
+        assertNotEquals(0L, tt.lookup(42L, 5L, 2L | 3L << 2, 0L));
+        assertNotEquals(0L, tt.lookup(42L, 5L, 2L, 0L));
+        // Top card held by East instead: different class
+        assertEquals(0L, tt.lookup(42L, 5L, 1L, 0L));
+    }
+
+    @Test
+    void hashCollisionIsNotAHit() {
+        TranspositionTable tt = new TranspositionTable(1);
+        tt.store(42L, 5L, TOP_SOUTH, 0L, 5, 100, 0, 13, TranspositionTable.NO_MOVE);
+        assertEquals(0L, tt.lookup(42L, 6L, 2L, 0L), "different shape");
+        assertEquals(0L, tt.lookup(42L, 5L, 2L | 1L << 60, 0L), "different leader");
+    }
+
+    @Test
+    void trickKeyMustMatch() {
+        TranspositionTable tt = new TranspositionTable(1);
+        tt.store(42L, 5L, 0x2A3, TOP_SOUTH, 0L, 5, 100, 1, 3, TranspositionTable.NO_MOVE);
+        assertEquals(0L, tt.lookup(42L, 5L, 2L, 0L), "trick boundary");
+        assertEquals(0L, tt.lookup(42L, 5L, 0x2A4, 2L, 0L), "other trick");
+        long found = tt.lookup(42L, 5L, 0x2A3, 2L, 0L);
+        assertEquals(1, TranspositionTable.lower(found));
+        assertEquals(3, TranspositionTable.upper(found));
+    }
+
+    @Test
+    void clearForgetsEntries() {
+        TranspositionTable tt = new TranspositionTable(1);
+        tt.store(42L, 5L, TOP_SOUTH, 0L, 5, 100, 0, 13, TranspositionTable.NO_MOVE);
+        for (int i = 0; i < 300; i++) {
+            tt.clear();
+            assertEquals(0L, tt.lookup(42L, 5L, 2L, 0L));
+            tt.store(42L, 5L, TOP_SOUTH, 0L, 5, 100, 0, 13, TranspositionTable.NO_MOVE);
+        }
+    }
+
+    @Test
+    void fullBucketKeepsLargestSubtrees() {
+        TranspositionTable tt = new TranspositionTable(1);
+        // Same hash => same bucket, distinct shapes => distinct positions
+        for (int i = 0; i < 8; i++) {
+            tt.store(7L, i, TOP_SOUTH, 0L, 3, 1000 + i, 0, 13, TranspositionTable.NO_MOVE);
+        }
+        tt.store(7L, 99L, TOP_SOUTH, 0L, 3, 5000, 0, 13, TranspositionTable.NO_MOVE);
+
+        assertEquals(0L, tt.lookup(7L, 0L, 2L, 0L), "smallest subtree should be evicted");
+        for (int i = 1; i < 8; i++) {
+            assertNotEquals(0L, tt.lookup(7L, i, 2L, 0L));
+        }
+        assertNotEquals(0L, tt.lookup(7L, 99L, 2L, 0L));
+    }
+
+    @Test
+    void concurrentWritersNeverProduceMixedEntries() throws Exception {
+        TranspositionTable tt = new TranspositionTable(1);
+        // Every writer stores bounds [s % 7, s % 7 + 3] for shape s into the same bucket
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            int seed = t;
+            writers[t] = new Thread(() -> {
+                for (int n = 0; n < 200_000; n++) {
+                    long shape = (n * 31L + seed) % 64;
+                    int lower = (int) (shape % 7);
+                    tt.store(7L, shape, TOP_SOUTH, 0L, 5, n % 50, lower, lower + 3, TranspositionTable.NO_MOVE);
+                }
+            });
+            writers[t].start();
+        }
+        while (writers[0].isAlive()) {
+            for (long shape = 0; shape < 64; shape++) {
+                long found = tt.lookup(7L, shape, 2L, 0L);
+                if (found != 0) {
+                    assertEquals(shape % 7, TranspositionTable.lower(found));
+                    assertEquals(shape % 7 + 3, TranspositionTable.upper(found));
+                }
+            }
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+    }
+}
@@ -10,45 +10,60 @@ class TrickTest {
 
     @Test
     void highestOfLedSuitWins() {
-        Trick trick = new Trick();
+        Trick trick = new Trick(Trump.NO_TRUMP);
         trick.play(Card.of(Suit.SPADES, Rank.KING), Direction.NORTH);
         trick.play(Card.of(Suit.SPADES, Rank.TWO), Direction.EAST);
         trick.play(Card.of(Suit.SPADES, Rank.ACE), Direction.SOUTH);
         trick.play(Card.of(Suit.SPADES, Rank.THREE), Direction.WEST);
 
-        assertEquals(Direction.SOUTH, trick.winner(Trump.NO_TRUMP));
+        assertEquals(Direction.SOUTH, trick.winner());
     }
 
     @Test
     void trumpBeatsHighCard() {
-        Trick trick = new Trick();
+        Trick trick = new Trick(Trump.HEARTS);
         trick.play(Card.of(Suit.SPADES, Rank.ACE), Direction.NORTH);
         trick.play(Card.of(Suit.HEARTS, Rank.TWO), Direction.EAST); // trump
         trick.play(Card.of(Suit.SPADES, Rank.KING), Direction.SOUTH);
         trick.play(Card.of(Suit.SPADES, Rank.QUEEN), Direction.WEST);
 
-        assertEquals(Direction.EAST, trick.winner(Trump.HEARTS));
+        assertEquals(Direction.EAST, trick.winner());
     }
 
     @Test
     void highestTrumpWins() {
-        Trick trick = new Trick();
+        Trick trick = new Trick(Trump.HEARTS);
         trick.play(Card.of(Suit.SPADES, Rank.ACE), Direction.NORTH);
         trick.play(Card.of(Suit.HEARTS, Rank.TWO), Direction.EAST); // trump
         trick.play(Card.of(Suit.HEARTS, Rank.KING), Direction.SOUTH); // higher trump
         trick.play(Card.of(Suit.DIAMONDS, Rank.ACE), Direction.WEST);
 
-        assertEquals(Direction.SOUTH, trick.winner(Trump.HEARTS));
+        assertEquals(Direction.SOUTH, trick.winner());
     }
 
     @Test
     void offSuitDoesNotWin() {
-        Trick trick = new Trick();
+        Trick trick = new Trick(Trump.NO_TRUMP);
         trick.play(Card.of(Suit.SPADES, Rank.TWO), Direction.NORTH);
         trick.play(Card.of(Suit.DIAMONDS, Rank.ACE), Direction.EAST); // off suit
         trick.play(Card.of(Suit.SPADES, Rank.THREE), Direction.SOUTH);
         trick.play(Card.of(Suit.CLUBS, Rank.ACE), Direction.WEST); // off suit
 
-        assertEquals(Direction.SOUTH, trick.winner(Trump.NO_TRUMP));
+        assertEquals(Direction.SOUTH, trick.winner());
+    }
+
+    @Test
+    void undoRestoresWinner() {
+        Trick trick = new Trick(Trump.HEARTS);
+        trick.play(Card.of(Suit.SPADES, Rank.TEN), Direction.NORTH);
+        trick.play(Card.of(Suit.SPADES, Rank.KING), Direction.EAST);
+        trick.play(Card.of(Suit.HEARTS, Rank.TWO), Direction.SOUTH); // trump
+        assertEquals(Direction.SOUTH, trick.winner());
+
+        trick.undoLast();
+        assertEquals(Direction.EAST, trick.winner());
+        assertEquals(Card.of(Suit.SPADES, Rank.KING), trick.winningCard());
+        assertEquals(Card.of(Suit.SPADES, Rank.TEN).bitMask() | Card.of(Suit.SPADES, Rank.KING).bitMask(),
+                trick.cardMask());
     }
 }